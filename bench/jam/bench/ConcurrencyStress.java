@@ -0,0 +1,123 @@
+package jam.bench;
+
+import commonJam.solver.Configuration;
+import commonJam.solver.Solver;
+import jam.JamConfiguration;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that solves running at the same time on many threads give the
+ * same paths as solving one after another. Every puzzle is solved once
+ * on its own with each move model and strategy, then all of those solves
+ * are repeated for a number of rounds in a shuffled order across a pool
+ * of threads, puzzles of different sizes mixed together. Half the solves
+ * share one starting configuration between threads and half read their
+ * own from the file. Exits with status 1 if any path differs or any
+ * solve fails.
+ *
+ * @author Andrew Photinakis
+ */
+public class ConcurrencyStress {
+
+    /**
+     * strategies checked; IDA* is left out since it takes seconds per puzzle
+     */
+    private static final Solver.Strategy[] STRATEGIES = {Solver.Strategy.BREADTH_FIRST,
+            Solver.Strategy.BIDIRECTIONAL, Solver.Strategy.A_STAR, Solver.Strategy.PARALLEL_BREADTH_FIRST};
+
+    /**
+     * One solve and the path it has to find
+     *
+     * @param file      the puzzle file
+     * @param start     the puzzle's starting configuration, shared by every thread
+     * @param moveModel what counts as a single move
+     * @param strategy  how the search looks for the shortest path
+     * @param expected  the path found solving on its own
+     */
+    private record Job(File file, JamConfiguration start, Solver.MoveModel moveModel,
+                       Solver.Strategy strategy, List<Configuration> expected) {
+    }
+
+    /**
+     * Runs the check on every puzzle in the directory
+     *
+     * @param args optional puzzle directory, data/jam by default, then
+     *             optional number of threads, 8 by default, then
+     *             optional number of rounds, 10 by default
+     * @throws Exception if a puzzle file can't be read or the first solves fail
+     */
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args.length > 0 ? args[0] : "data/jam");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        File[] files = Objects.requireNonNull(dir.listFiles(), "Not a directory: " + dir);
+        Arrays.sort(files);
+
+        List<Job> jobs = new ArrayList<>();
+        for (File file : files) {
+            JamConfiguration start = new JamConfiguration(file.getPath());
+            for (Solver.MoveModel moveModel : Solver.MoveModel.values()) {
+                for (Solver.Strategy strategy : STRATEGIES) {
+                    List<Configuration> expected = new Solver(moveModel, strategy, 2).solve(start);
+                    jobs.add(new Job(file, start, moveModel, strategy, expected));
+                }
+            }
+        }
+
+        List<Job> schedule = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            schedule.addAll(jobs);
+        }
+        Collections.shuffle(schedule, new Random(42));
+
+        AtomicInteger mismatches = new AtomicInteger();
+        int failures = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long begin = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < schedule.size(); i++) {
+                Job job = schedule.get(i);
+                boolean shared = i % 2 == 0;
+                futures.add(pool.submit(() -> {
+                    JamConfiguration start = shared ? job.start() : new JamConfiguration(job.file().getPath());
+                    List<Configuration> path = new Solver(job.moveModel(), job.strategy(), 2).solve(start);
+                    if (!path.equals(job.expected())) {
+                        mismatches.incrementAndGet();
+                        System.out.printf("MISMATCH %s %s %s: %d moves, expected %d%n", job.file().getName(),
+                                job.moveModel(), job.strategy(), path.size() - 1, job.expected().size() - 1);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failures++;
+                    e.getCause().printStackTrace();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.printf("%d solves on %d threads in %.1f s, %d mismatches, %d failed%n", schedule.size(),
+                threads, (System.nanoTime() - begin) / 1e9, mismatches.get(), failures);
+        if (mismatches.get() > 0 || failures > 0) {
+            System.exit(1);
+        }
+    }
+
+}
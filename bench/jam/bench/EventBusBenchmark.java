@@ -0,0 +1,232 @@
+package jam.bench;
+
+import commonJam.Observer;
+import jam.EventSubscription;
+import jam.JamConfiguration;
+import jam.JamModel;
+import jam.JamPuzzle;
+import jam.ModelEvent;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times a burst of moves through JamModel with different observers on
+ * its event bus: none, a direct one on the moving thread, and a slow
+ * view on a thread of its own that either gets every event or only the
+ * latest board. One car is slid back and forth by selections, two per
+ * move, and the report gives the moves per second the model kept up
+ * with, how many events the view was handed, how many were coalesced or
+ * dropped, and how long the view took to catch up after the burst.
+ *
+ * @author Andrew Photinakis
+ */
+public class EventBusBenchmark {
+
+    /**
+     * untimed moves before each burst
+     */
+    private static final int WARMUP_MOVES = 20_000;
+    /**
+     * time the slow view spends on each event, about what redrawing a few cells takes
+     */
+    private static final long VIEW_NANOS = 20_000;
+
+    /**
+     * The observers a burst runs with
+     */
+    private enum Setup {
+        /**
+         * nobody listening
+         */
+        NONE,
+        /**
+         * a message observer added the old way, updated on the moving thread
+         */
+        DIRECT,
+        /**
+         * a slow view on its own thread handed every event
+         */
+        QUEUED,
+        /**
+         * a slow view on its own thread handed only the events not superseded yet
+         */
+        COALESCING
+    }
+
+    /**
+     * Counts the events it is handed, spinning for a while on each one
+     * like a view drawing the board
+     */
+    private static class SlowView implements Observer<JamModel, ModelEvent> {
+        /**
+         * how long each event takes
+         */
+        private final long nanos;
+        /**
+         * number of events handed over
+         */
+        private final AtomicLong seen = new AtomicLong();
+
+        /**
+         * @param nanos how long each event takes
+         */
+        SlowView(long nanos) {
+            this.nanos = nanos;
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void update(JamModel jamModel, ModelEvent event) {
+            long until = System.nanoTime() + this.nanos;
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+            this.seen.incrementAndGet();
+        }
+    }
+
+    /**
+     * Runs a burst with every setup
+     *
+     * @param args optional puzzle file, data/jam/jam-1.txt by default,
+     *             then optional number of moves, 10000 by default
+     * @throws Exception if the puzzle can't be read or no car can move
+     */
+    public static void main(String[] args) throws Exception {
+        String file = args.length > 0 ? args[0] : "data/jam/jam-1.txt";
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        System.out.printf("%-10s %10s %12s %10s %10s %10s %10s %12s%n", "observers", "burst ms", "moves/s",
+                "events", "handed", "coalesced", "dropped", "catch-up ms");
+        for (Setup setup : Setup.values()) {
+            ExecutorService viewThread = Executors.newSingleThreadExecutor();
+            try {
+                JamModel model = new JamModel(file);
+                SlowView view = new SlowView(VIEW_NANOS);
+                AtomicLong messages = new AtomicLong();
+                EventSubscription subscription = null;
+                switch (setup) {
+                    case DIRECT -> model.addObserver(new Observer<>() {
+                        @Override
+                        public void init() {
+                        }
+
+                        @Override
+                        public void update(JamModel jamModel, String msg) {
+                            messages.incrementAndGet();
+                        }
+                    });
+                    case QUEUED, COALESCING -> subscription = model.subscribe(view, viewThread,
+                            JamModel.DEFAULT_EVENT_CAPACITY, setup == Setup.COALESCING);
+                    default -> {
+                    }
+                }
+
+                burst(model, WARMUP_MOVES);
+                long events = 2L * WARMUP_MOVES;
+                long warmHanded = subscription == null ? 0 : waitForView(subscription);
+                long warmCoalesced = subscription == null ? 0 : subscription.getCoalesced();
+                long warmDropped = subscription == null ? 0 : subscription.getDropped();
+
+                long begin = System.nanoTime();
+                burst(model, moves);
+                long burstNanos = System.nanoTime() - begin;
+                long handed = subscription == null ? messages.get() : waitForView(subscription);
+                long caughtUp = System.nanoTime() - begin - burstNanos;
+                if (subscription == null) {
+                    handed -= events;
+                    caughtUp = 0;
+                } else {
+                    handed -= warmHanded;
+                }
+
+                System.out.printf("%-10s %10.1f %12.0f %10d %10d %10d %10d %12.1f%n", setup, burstNanos / 1e6,
+                        moves / (burstNanos / 1e9), 2L * moves, setup == Setup.NONE ? 0 : handed,
+                        subscription == null ? 0 : subscription.getCoalesced() - warmCoalesced,
+                        subscription == null ? 0 : subscription.getDropped() - warmDropped, caughtUp / 1e6);
+            } finally {
+                viewThread.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Waits until the view has been handed every event still waiting for it
+     *
+     * @param subscription the view's subscription
+     * @return number of events handed to the view so far
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static long waitForView(EventSubscription subscription) throws InterruptedException {
+        while (subscription.getPending() > 0 || ((SlowView) subscription.getObserver()).seen.get()
+                < subscription.getDelivered()) {
+            Thread.sleep(1);
+        }
+        return subscription.getDelivered();
+    }
+
+    /**
+     * Slides the first car that can move one cell back and forth, each
+     * move made by selecting the car and then the cell it moves to
+     *
+     * @param model the model, at the puzzle's start
+     * @param moves number of moves to make
+     * @throws IOException if the model can't notify
+     */
+    private static void burst(JamModel model, int moves) throws IOException {
+        JamPuzzle puzzle = model.getConfig().getPuzzle();
+        for (int car = 0; car < puzzle.getNumCars(); car++) {
+            int home = model.getConfig().getPosition(car);
+            int away = home > 0 && isFree(model, car, home - 1) ? home - 1
+                    : home < puzzle.getMaxPosition(car) && isFree(model, car, home + puzzle.getLength(car)) ? home + 1
+                    : -1;
+            if (away < 0) {
+                continue;
+            }
+            for (int i = 0; i < moves; i++) {
+                int from = i % 2 == 0 ? home : away;
+                int to = i % 2 == 0 ? away : home;
+                int target = to < from ? to : to + puzzle.getLength(car) - 1;
+                click(model, car, from);
+                click(model, car, target);
+            }
+            return;
+        }
+        throw new IllegalStateException("No car can move at the start of the puzzle");
+    }
+
+    /**
+     * @return true if the cell at that position of the car's lane is empty
+     */
+    private static boolean isFree(JamModel model, int car, int position) {
+        JamPuzzle puzzle = model.getConfig().getPuzzle();
+        int lane = puzzle.getLane(car);
+        char cell = puzzle.movesSideways(car) ? model.getConfig().getCharAtCord(lane, position)
+                : model.getConfig().getCharAtCord(position, lane);
+        return cell == JamConfiguration.EMPTY;
+    }
+
+    /**
+     * Selects the cell at a position of the car's lane
+     *
+     * @param model    the model
+     * @param car      index of the car
+     * @param position position along the car's lane
+     * @throws IOException if the model can't notify
+     */
+    private static void click(JamModel model, int car, int position) throws IOException {
+        JamPuzzle puzzle = model.getConfig().getPuzzle();
+        int lane = puzzle.getLane(car);
+        if (puzzle.movesSideways(car)) {
+            model.selection(lane, position);
+        } else {
+            model.selection(position, lane);
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package jam.bench;
+
+import commonJam.solver.Configuration;
+import commonJam.solver.Solver;
+import jam.JamConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Solves every puzzle once with each move model and reports the
+ * number of moves in the answer, the configs expanded to find it
+ * and the wall time. Each solve is run once untimed first so the
+ * numbers aren't dominated by class loading and the JIT.
+ *
+ * @author Andrew Photinakis
+ */
+public class MoveModelBenchmark {
+
+    /**
+     * Runs both move models on every puzzle in the directory
+     *
+     * @param args optional puzzle directory, data/jam by default
+     * @throws IOException if a puzzle file can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "data/jam");
+        File[] files = Objects.requireNonNull(dir.listFiles(), "Not a directory: " + dir);
+        Arrays.sort(files);
+
+        System.out.printf("%-12s %-12s %6s %10s %10s%n", "puzzle", "model", "moves", "expanded", "ms");
+        for (File file : files) {
+            for (Solver.MoveModel moveModel : Solver.MoveModel.values()) {
+                JamConfiguration start = new JamConfiguration(file.getPath());
+                new Solver(moveModel).solve(start);
+
+                Solver solver = new Solver(moveModel);
+                long begin = System.nanoTime();
+                List<Configuration> path = solver.solve(start);
+                long nanos = System.nanoTime() - begin;
+                System.out.printf("%-12s %-12s %6d %10d %10.1f%n", file.getName(), moveModel,
+                        Math.max(path.size() - 1, 0), solver.getExpanded(), nanos / 1e6);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package jam.bench;
+
+import commonJam.solver.Configuration;
+import jam.JamConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Times the two ways of expanding a JamConfiguration: building the
+ * neighbor collection with getNeighbors and streaming the neighbors
+ * into a sink with forEachNeighbor. For every puzzle it gathers the
+ * first states reachable from the start and expands all of them over
+ * and over, reporting the average time per expanded state.
+ *
+ * @author Andrew Photinakis
+ */
+public class NeighborBenchmark {
+
+    /**
+     * how many reachable states to gather per puzzle
+     */
+    private static final int SAMPLE_STATES = 50_000;
+    /**
+     * untimed rounds before measuring
+     */
+    private static final int WARMUP_ROUNDS = 5;
+    /**
+     * timed rounds
+     */
+    private static final int MEASURED_ROUNDS = 10;
+    /**
+     * keeps the neighbor counts alive so the JIT can't drop the work
+     */
+    private static long blackhole;
+
+    /**
+     * Runs the comparison on every puzzle in the directory
+     *
+     * @param args optional puzzle directory, data/jam by default
+     * @throws IOException if a puzzle file can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "data/jam");
+        File[] files = Objects.requireNonNull(dir.listFiles(), "Not a directory: " + dir);
+        Arrays.sort(files);
+
+        System.out.printf("%-12s %8s %18s %18s%n", "puzzle", "states", "getNeighbors ns", "forEachNeighbor ns");
+        for (File file : files) {
+            List<Configuration> states = sample(new JamConfiguration(file.getPath()));
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                collect(states);
+                stream(states);
+            }
+            long collectNanos = 0;
+            long streamNanos = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long start = System.nanoTime();
+                collect(states);
+                collectNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                stream(states);
+                streamNanos += System.nanoTime() - start;
+            }
+            long expansions = (long) states.size() * MEASURED_ROUNDS;
+            System.out.printf("%-12s %8d %18.1f %18.1f%n", file.getName(), states.size(),
+                    (double) collectNanos / expansions, (double) streamNanos / expansions);
+        }
+        System.out.println("(checksum " + blackhole + ")");
+    }
+
+    /**
+     * Gathers states breadth first from the start configuration
+     *
+     * @param start the starting configuration
+     * @return up to SAMPLE_STATES distinct reachable states
+     */
+    static List<Configuration> sample(Configuration start) {
+        Set<Configuration> seen = new HashSet<>();
+        List<Configuration> states = new ArrayList<>();
+        seen.add(start);
+        states.add(start);
+        for (int i = 0; i < states.size() && states.size() < SAMPLE_STATES; i++) {
+            for (Configuration neighbor : states.get(i).getNeighbors()) {
+                if (states.size() < SAMPLE_STATES && seen.add(neighbor)) {
+                    states.add(neighbor);
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Expands every state through getNeighbors
+     */
+    private static void collect(List<Configuration> states) {
+        long count = 0;
+        for (Configuration state : states) {
+            count += state.getNeighbors().size();
+        }
+        blackhole += count;
+    }
+
+    /**
+     * Expands every state through forEachNeighbor
+     */
+    private static void stream(List<Configuration> states) {
+        long[] count = new long[1];
+        for (Configuration state : states) {
+            state.forEachNeighbor(neighbor -> count[0]++);
+        }
+        blackhole += count[0];
+    }
+
+}
@@ -0,0 +1,75 @@
+package jam.bench;
+
+import commonJam.solver.Configuration;
+import commonJam.solver.Solver;
+import jam.JamConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Solves every puzzle with the parallel BFS at 1, 2, 4, ... threads up
+ * to the number of cores and reports the wall time and speedup over the
+ * plain BFS, checking each time that the path is the same one the plain
+ * BFS finds. Each time is the best of a few runs.
+ *
+ * @author Andrew Photinakis
+ */
+public class ParallelBenchmark {
+
+    /**
+     * runs per measurement, the fastest one is reported
+     */
+    private static final int RUNS = 5;
+
+    /**
+     * Runs the scaling measurement on every puzzle in the directory
+     *
+     * @param args optional puzzle directory, data/jam by default, then
+     *             optional move model, SINGLE_STEP by default, then
+     *             optional most threads to try, the number of cores by default
+     * @throws IOException if a puzzle file can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "data/jam");
+        Solver.MoveModel moveModel = args.length > 1 ? Solver.MoveModel.valueOf(args[1]) : Solver.MoveModel.SINGLE_STEP;
+        File[] files = Objects.requireNonNull(dir.listFiles(), "Not a directory: " + dir);
+        Arrays.sort(files);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : cores;
+
+        System.out.println("Move model: " + moveModel + ", cores: " + cores);
+        System.out.printf("%-12s %8s %10s %8s %6s%n", "puzzle", "threads", "ms", "speedup", "same");
+        for (File file : files) {
+            JamConfiguration start = new JamConfiguration(file.getPath());
+            Solver sequential = new Solver(moveModel, Solver.Strategy.BREADTH_FIRST);
+            List<Configuration> expected = sequential.solve(start);
+            double baseline = best(start, sequential);
+            System.out.printf("%-12s %8s %10.1f %8s %6s%n", file.getName(), "plain", baseline, "1.00", "-");
+
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                Solver parallel = new Solver(moveModel, Solver.Strategy.PARALLEL_BREADTH_FIRST, threads);
+                boolean same = parallel.solve(start).equals(expected);
+                double millis = best(start, parallel);
+                System.out.printf("%-12s %8d %10.1f %8.2f %6s%n", file.getName(), threads, millis,
+                        baseline / millis, same);
+            }
+        }
+    }
+
+    /**
+     * @return the fastest of RUNS solves with the solver, in milliseconds
+     */
+    private static double best(Configuration start, Solver solver) {
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long begin = System.nanoTime();
+            solver.solve(start);
+            fastest = Math.min(fastest, System.nanoTime() - begin);
+        }
+        return fastest / 1e6;
+    }
+
+}
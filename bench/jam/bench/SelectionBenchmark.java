@@ -0,0 +1,72 @@
+package jam.bench;
+
+import jam.JamModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Times JamModel.selection the way a headless bot drives it: clicks on
+ * random cells of the board, so about half pick a car and the rest try
+ * to move the car picked, legally or not. Every puzzle gets the same
+ * seeded clicks and the report gives the selections per second.
+ *
+ * @author Andrew Photinakis
+ */
+public class SelectionBenchmark {
+
+    /**
+     * untimed clicks before measuring
+     */
+    private static final int WARMUP_CLICKS = 1_000_000;
+    /**
+     * clicks before the puzzle is loaded again, so the cars don't stay jammed in one corner
+     */
+    private static final int CLICKS_PER_GAME = 1_000;
+
+    /**
+     * Runs the clicks on every puzzle in the directory
+     *
+     * @param args optional puzzle directory, data/jam by default, then
+     *             optional number of timed clicks, 2000000 by default
+     * @throws IOException if a puzzle file can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "data/jam");
+        int clicks = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        File[] files = Objects.requireNonNull(dir.listFiles(), "Not a directory: " + dir);
+        Arrays.sort(files);
+
+        System.out.printf("%-12s %12s %14s%n", "puzzle", "ms", "clicks/s");
+        for (File file : files) {
+            JamModel model = new JamModel(file.getPath());
+            click(model, WARMUP_CLICKS, new Random(7));
+            long begin = System.nanoTime();
+            click(model, clicks, new Random(42));
+            long nanos = System.nanoTime() - begin;
+            System.out.printf("%-12s %12.1f %14.0f%n", file.getName(), nanos / 1e6, clicks / (nanos / 1e9));
+        }
+    }
+
+    /**
+     * Clicks random cells, resetting the puzzle every so often
+     *
+     * @param model  the model to click on
+     * @param clicks number of clicks
+     * @param random where the cells come from
+     * @throws IOException if the model can't notify
+     */
+    private static void click(JamModel model, int clicks, Random random) throws IOException {
+        int numRows = model.getThisConfigRows();
+        int numCols = model.getThisConfigCols();
+        for (int i = 0; i < clicks; i++) {
+            if (i % CLICKS_PER_GAME == 0) {
+                model.reset();
+            }
+            model.selection(random.nextInt(numRows), random.nextInt(numCols));
+        }
+    }
+
+}
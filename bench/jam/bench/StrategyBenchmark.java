@@ -0,0 +1,60 @@
+package jam.bench;
+
+import commonJam.solver.Configuration;
+import commonJam.solver.Solver;
+import jam.JamConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Solves every puzzle once with each search strategy and reports the
+ * length of the answer, the configs expanded to find it and the wall
+ * time, so the strategies can be checked against each other. Each
+ * solve is run once untimed first to warm up. IDA* is skipped on
+ * puzzles with no solution, which it takes far too long to prove;
+ * A* answers those.
+ *
+ * @author Andrew Photinakis
+ */
+public class StrategyBenchmark {
+
+    /**
+     * Runs every strategy on every puzzle in the directory
+     *
+     * @param args optional puzzle directory, data/jam by default, then
+     *             optional move model, SINGLE_STEP by default
+     * @throws IOException if a puzzle file can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "data/jam");
+        Solver.MoveModel moveModel = args.length > 1 ? Solver.MoveModel.valueOf(args[1]) : Solver.MoveModel.SINGLE_STEP;
+        File[] files = Objects.requireNonNull(dir.listFiles(), "Not a directory: " + dir);
+        Arrays.sort(files);
+
+        System.out.println("Move model: " + moveModel);
+        System.out.printf("%-12s %-14s %6s %10s %10s%n", "puzzle", "strategy", "length", "expanded", "ms");
+        for (File file : files) {
+            boolean solvable = !new Solver(moveModel, Solver.Strategy.A_STAR)
+                    .solve(new JamConfiguration(file.getPath())).isEmpty();
+            for (Solver.Strategy strategy : Solver.Strategy.values()) {
+                if (strategy == Solver.Strategy.IDA_STAR && !solvable) {
+                    System.out.printf("%-12s %-14s %s%n", file.getName(), strategy, "skipped, no solution");
+                    continue;
+                }
+                JamConfiguration start = new JamConfiguration(file.getPath());
+                new Solver(moveModel, strategy).solve(start);
+
+                Solver solver = new Solver(moveModel, strategy);
+                long begin = System.nanoTime();
+                List<Configuration> path = solver.solve(start);
+                long nanos = System.nanoTime() - begin;
+                System.out.printf("%-12s %-14s %6d %10d %10.1f%n", file.getName(), strategy,
+                        Math.max(path.size() - 1, 0), solver.getExpanded(), nanos / 1e6);
+            }
+        }
+    }
+
+}
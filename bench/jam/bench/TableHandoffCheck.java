@@ -0,0 +1,64 @@
+package jam.bench;
+
+import jam.JamConfiguration;
+import jam.JamModel;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks that a model waiting for a shared distance table builds it
+ * itself when the model building it gives up. One model asks for a hint
+ * from the distance table with a hint time limit far shorter than the
+ * build takes, and while it builds a second model with no limit asks how
+ * many moves are left. The hint has to time out and the second model has
+ * to get its answer anyway. Exits with status 1 if either goes wrong.
+ *
+ * @author Andrew Photinakis
+ */
+public class TableHandoffCheck {
+
+    /**
+     * hint time limit of the model that starts the build
+     */
+    private static final Duration BUILDER_LIMIT = Duration.ofMillis(500);
+    /**
+     * how long the second model waits before asking, so the build is under way
+     */
+    private static final long WAITER_DELAY_MILLIS = 200;
+
+    /**
+     * Runs the check on a puzzle whose table takes a while to build
+     *
+     * @param args optional puzzle file, data/jam/jam-7.txt by default
+     * @throws Exception if the puzzle can't be read
+     */
+    public static void main(String[] args) throws Exception {
+        String file = args.length > 0 ? args[0] : "data/jam/jam-7.txt";
+
+        JamModel builder = new JamModel(file);
+        builder.setHintMode(JamModel.HintMode.DISTANCE_TABLE);
+        builder.setHintTimeLimit(BUILDER_LIMIT);
+        CompletableFuture<JamConfiguration> hint = builder.hintAsync();
+        Thread.sleep(WAITER_DELAY_MILLIS);
+
+        JamModel waiter = new JamModel(file);
+        long begin = System.nanoTime();
+        int moves = waiter.getMovesToSolve();
+        System.out.printf("waiter got %d moves after %.1f ms%n", moves, (System.nanoTime() - begin) / 1e6);
+
+        boolean timedOut;
+        try {
+            hint.get();
+            timedOut = false;
+        } catch (ExecutionException e) {
+            timedOut = e.getCause() instanceof TimeoutException;
+        }
+        System.out.println("builder timed out: " + timedOut);
+        if (!timedOut || moves < 0) {
+            System.exit(1);
+        }
+    }
+
+}
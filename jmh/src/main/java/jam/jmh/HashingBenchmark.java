@@ -0,0 +1,106 @@
+package jam.jmh;
+
+import commonJam.solver.Configuration;
+import jam.JamConfiguration;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashes and compares configurations along a random walk. Each one is
+ * compared with an equal copy reached by moving a car and moving it
+ * back, and with a neighbor that differs by one car.
+ *
+ * @author Andrew Photinakis
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashingBenchmark {
+
+    /**
+     * puzzle to walk, see Puzzles
+     */
+    @Param({"jam-1", "jam-2", "jam-3", "jam-4", "jam-5", "jam-6", "jam-7", "jam-8",
+            "synthetic-8x8", "synthetic-10x10", "synthetic-12x12"})
+    public String puzzle;
+
+    /**
+     * configurations along the walk
+     */
+    private JamConfiguration[] walk;
+    /**
+     * an equal but separate copy of each configuration on the walk
+     */
+    private Configuration[] copies;
+    /**
+     * a configuration one move away from each one on the walk
+     */
+    private Configuration[] neighbors;
+    /**
+     * where the next invocation is on the walk
+     */
+    private int next;
+
+    /**
+     * Takes the walk and finds the copies and neighbors
+     *
+     * @throws IOException if the puzzle file can't be read
+     */
+    @Setup
+    public void setUp() throws IOException {
+        this.walk = Walk.of(this.puzzle);
+        this.copies = new Configuration[Walk.LENGTH];
+        this.neighbors = new Configuration[Walk.LENGTH];
+        for (int i = 0; i < Walk.LENGTH; i++) {
+            JamConfiguration config = this.walk[i];
+            Configuration neighbor = config.getNeighbors().iterator().next();
+            this.neighbors[i] = neighbor;
+            for (Configuration back : neighbor.getNeighbors()) {
+                if (back.equals(config)) {
+                    this.copies[i] = back;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the hash code of the next configuration on the walk
+     */
+    @Benchmark
+    public int hashCodeOf() {
+        return this.walk[this.next++ & (Walk.LENGTH - 1)].hashCode();
+    }
+
+    /**
+     * @return true, comparing the next configuration with its copy
+     */
+    @Benchmark
+    public boolean equalsCopy() {
+        int i = this.next++ & (Walk.LENGTH - 1);
+        return this.walk[i].equals(this.copies[i]);
+    }
+
+    /**
+     * @return false, comparing the next configuration with its neighbor
+     */
+    @Benchmark
+    public boolean equalsNeighbor() {
+        int i = this.next++ & (Walk.LENGTH - 1);
+        return this.walk[i].equals(this.neighbors[i]);
+    }
+
+}
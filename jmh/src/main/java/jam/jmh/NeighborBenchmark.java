@@ -0,0 +1,93 @@
+package jam.jmh;
+
+import commonJam.solver.Configuration;
+import jam.JamConfiguration;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Generates the neighbors of configurations along a random walk, both
+ * collected into a list and streamed to a sink, in single steps and
+ * in slides.
+ *
+ * @author Andrew Photinakis
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighborBenchmark {
+
+    /**
+     * puzzle to walk, see Puzzles
+     */
+    @Param({"jam-1", "jam-2", "jam-3", "jam-4", "jam-5", "jam-6", "jam-7", "jam-8",
+            "synthetic-8x8", "synthetic-10x10", "synthetic-12x12"})
+    public String puzzle;
+
+    /**
+     * configurations along the walk
+     */
+    private JamConfiguration[] walk;
+    /**
+     * where the next invocation is on the walk
+     */
+    private int next;
+
+    /**
+     * Takes the walk
+     *
+     * @throws IOException if the puzzle file can't be read
+     */
+    @Setup
+    public void setUp() throws IOException {
+        this.walk = Walk.of(this.puzzle);
+    }
+
+    /**
+     * @return the next configuration on the walk, going round again at the end
+     */
+    private JamConfiguration nextConfig() {
+        return this.walk[this.next++ & (Walk.LENGTH - 1)];
+    }
+
+    /**
+     * @return the single step neighbors, collected
+     */
+    @Benchmark
+    public Collection<Configuration> getNeighbors() {
+        return this.nextConfig().getNeighbors();
+    }
+
+    /**
+     * Streams the single step neighbors to a sink
+     */
+    @Benchmark
+    public void forEachNeighbor(Blackhole blackhole) {
+        this.nextConfig().forEachNeighbor(blackhole::consume);
+    }
+
+    /**
+     * Streams the slide neighbors to a sink
+     */
+    @Benchmark
+    public void forEachSlideNeighbor(Blackhole blackhole) {
+        this.nextConfig().forEachSlideNeighbor(blackhole::consume);
+    }
+
+}
@@ -0,0 +1,71 @@
+package jam.jmh;
+
+import jam.JamConfiguration;
+import jam.JamPuzzle;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads puzzle files, both into a bare puzzle and into a starting
+ * configuration. The file is read each time, so this includes the I/O.
+ *
+ * @author Andrew Photinakis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    /**
+     * puzzle to read, see Puzzles
+     */
+    @Param({"jam-1", "jam-2", "jam-3", "jam-4", "jam-5", "jam-6", "jam-7", "jam-8",
+            "synthetic-8x8", "synthetic-10x10", "synthetic-12x12"})
+    public String puzzle;
+
+    /**
+     * the puzzle's file
+     */
+    private String file;
+
+    /**
+     * Finds or writes the puzzle file
+     */
+    @Setup
+    public void setUp() {
+        this.file = Puzzles.file(this.puzzle);
+    }
+
+    /**
+     * @return the puzzle read from the file
+     * @throws IOException if the file can't be read
+     */
+    @Benchmark
+    public JamPuzzle parsePuzzle() throws IOException {
+        return new JamPuzzle(this.file);
+    }
+
+    /**
+     * @return the starting configuration read from the file
+     * @throws IOException if the file can't be read
+     */
+    @Benchmark
+    public JamConfiguration parseConfiguration() throws IOException {
+        return new JamConfiguration(this.file);
+    }
+
+}
@@ -0,0 +1,111 @@
+package jam.jmh;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Turns a benchmark puzzle parameter into a puzzle file. A name like
+ * jam-3 is read from data/jam (or the directory in the jam.data
+ * property), and a name like synthetic-10x10 is a bigger board made up
+ * on the spot from a fixed seed, so every run benchmarks the same one.
+ *
+ * @author Andrew Photinakis
+ */
+final class Puzzles {
+
+    /**
+     * prefix of generated puzzle names
+     */
+    private static final String SYNTHETIC = "synthetic-";
+    /**
+     * seed every generated board is made from
+     */
+    private static final long SEED = 0x4A414DL;
+    /**
+     * names given to generated cars, in order, skipping the X car
+     */
+    private static final String NAMES = "ABCDEFGHIJKLMNOPQRSTUVWYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private Puzzles() {
+    }
+
+    /**
+     * Finds or makes the puzzle file for a benchmark parameter
+     *
+     * @param name jam-n for a puzzle in the data directory, synthetic-RxC for a generated one
+     * @return path of the puzzle file
+     */
+    static String file(String name) {
+        if (!name.startsWith(SYNTHETIC)) {
+            return Path.of(System.getProperty("jam.data", "data/jam"), name + ".txt").toString();
+        }
+        String[] size = name.substring(SYNTHETIC.length()).split("x");
+        try {
+            Path file = Files.createTempFile(name, ".txt");
+            file.toFile().deleteOnExit();
+            Files.write(file, synthetic(Integer.parseInt(size[0]), Integer.parseInt(size[1])));
+            return file.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Makes a board with the X car on the left of the middle row and
+     * about one car for every five cells scattered around it. No
+     * sideways car shares the X car's row, so X is never walled in
+     * for good, but the board may still have no solution.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the lines of the puzzle file
+     */
+    static List<String> synthetic(int rows, int cols) {
+        Random random = new Random(SEED);
+        boolean[][] taken = new boolean[rows][cols];
+        int goalRow = (rows - 1) / 2;
+        List<String> cars = new ArrayList<>();
+        cars.add("X " + goalRow + " 0 " + goalRow + " 1");
+        taken[goalRow][0] = true;
+        taken[goalRow][1] = true;
+
+        int wanted = Math.min(rows * cols / 5, NAMES.length());
+        for (int tries = 0; cars.size() <= wanted && tries < 100 * wanted; tries++) {
+            boolean sideways = random.nextBoolean();
+            int length = 2 + random.nextInt(2);
+            int row = random.nextInt(sideways ? rows : rows - length + 1);
+            int col = random.nextInt(sideways ? cols - length + 1 : cols);
+            if (sideways && row == goalRow) {
+                continue;
+            }
+            int endRow = sideways ? row : row + length - 1;
+            int endCol = sideways ? col + length - 1 : col;
+            boolean free = true;
+            for (int r = row; r <= endRow; r++) {
+                for (int c = col; c <= endCol; c++) {
+                    free &= !taken[r][c];
+                }
+            }
+            if (free) {
+                for (int r = row; r <= endRow; r++) {
+                    for (int c = col; c <= endCol; c++) {
+                        taken[r][c] = true;
+                    }
+                }
+                cars.add(NAMES.charAt(cars.size() - 1) + " " + row + " " + col + " " + endRow + " " + endCol);
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(rows + " " + cols);
+        lines.add(String.valueOf(cars.size()));
+        lines.addAll(cars);
+        return lines;
+    }
+
+}
@@ -0,0 +1,75 @@
+package jam.jmh;
+
+import commonJam.solver.Configuration;
+import commonJam.solver.Solver;
+import jam.JamConfiguration;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Solves each puzzle from its start with each move model and strategy.
+ * The larger synthetic boards are left out here since a full search of
+ * them takes far longer than a benchmark iteration.
+ *
+ * @author Andrew Photinakis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+    /**
+     * puzzle to solve, see Puzzles
+     */
+    @Param({"jam-1", "jam-2", "jam-3", "jam-4", "jam-5", "jam-6", "jam-7", "jam-8", "synthetic-8x8"})
+    public String puzzle;
+    /**
+     * what counts as a single move
+     */
+    @Param({"SINGLE_STEP", "SLIDE"})
+    public Solver.MoveModel moveModel;
+    /**
+     * how the search looks for the shortest path
+     */
+    @Param({"BREADTH_FIRST", "A_STAR"})
+    public Solver.Strategy strategy;
+
+    /**
+     * the puzzle's starting configuration
+     */
+    private JamConfiguration start;
+
+    /**
+     * Reads the puzzle
+     *
+     * @throws IOException if the puzzle file can't be read
+     */
+    @Setup
+    public void setUp() throws IOException {
+        this.start = new JamConfiguration(Puzzles.file(this.puzzle));
+    }
+
+    /**
+     * @return the shortest path from the start
+     */
+    @Benchmark
+    public List<Configuration> solve() {
+        return new Solver(this.moveModel, this.strategy).solve(this.start);
+    }
+
+}
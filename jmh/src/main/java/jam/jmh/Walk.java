@@ -0,0 +1,50 @@
+package jam.jmh;
+
+import commonJam.solver.Configuration;
+import jam.JamConfiguration;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Configurations met on a fixed random walk from a puzzle's start, so
+ * the benchmarks see boards in the middle of play and not just the
+ * starting one.
+ *
+ * @author Andrew Photinakis
+ */
+final class Walk {
+
+    /**
+     * number of configurations on a walk, a power of two
+     */
+    static final int LENGTH = 256;
+    /**
+     * seed every walk is taken from
+     */
+    private static final long SEED = 42;
+
+    private Walk() {
+    }
+
+    /**
+     * Takes a random walk of single steps from the puzzle's start
+     *
+     * @param puzzle benchmark puzzle parameter, see Puzzles
+     * @return the LENGTH configurations walked through, starting with the start
+     * @throws IOException if the puzzle file can't be read
+     */
+    static JamConfiguration[] of(String puzzle) throws IOException {
+        Random random = new Random(SEED);
+        JamConfiguration[] walk = new JamConfiguration[LENGTH];
+        walk[0] = new JamConfiguration(Puzzles.file(puzzle));
+        for (int i = 1; i < LENGTH; i++) {
+            List<Configuration> neighbors = new ArrayList<>(walk[i - 1].getNeighbors());
+            walk[i] = neighbors.isEmpty() ? walk[i - 1]
+                    : (JamConfiguration) neighbors.get(random.nextInt(neighbors.size()));
+        }
+        return walk;
+    }
+
+}
@@ -1,6 +1,7 @@
 package commonJam.solver;
 
 import java.util.Collection;
+import java.util.Collections;
 
 public interface Configuration {
     boolean isSolution();
@@ -8,4 +9,41 @@ public interface Configuration {
     boolean equals(Object other);
     int hashCode();
     String toString();
+
+    /**
+     * Hands every neighbor to the sink. Configurations that can generate
+     * their neighbors without building a collection should override this.
+     *
+     * @param sink receives each neighbor
+     */
+    default void forEachNeighbor(NeighborSink sink) {
+        for (Configuration neighbor : this.getNeighbors()) {
+            sink.accept(neighbor);
+        }
+    }
+
+    /**
+     * Hands every configuration reachable in one whole move to the sink,
+     * however far that move goes. Configurations whose moves are all
+     * single steps can keep this default.
+     *
+     * @param sink receives each neighbor
+     */
+    default void forEachSlideNeighbor(NeighborSink sink) {
+        this.forEachNeighbor(sink);
+    }
+
+    /**
+     * Lists the solution configurations of this puzzle so a search can
+     * work backwards from them. Only puzzles where every move can be
+     * undone should list them, since the search walks back from the
+     * goals with the same neighbors. An empty collection means the
+     * goals can't be listed, or not without going past the limit.
+     *
+     * @param limit most goals worth listing
+     * @return every solution configuration this one might reach, or an empty collection
+     */
+    default Collection<Configuration> getGoals(int limit) {
+        return Collections.emptyList();
+    }
 }
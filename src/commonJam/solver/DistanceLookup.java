@@ -0,0 +1,62 @@
+package commonJam.solver;
+
+/**
+ * Anything that can say how many moves a configuration is from the
+ * nearest solution, whether it was just worked out in memory or is
+ * being read out of a solution database.
+ *
+ * @author Andrew Photinakis
+ */
+public interface DistanceLookup {
+    /**
+     * distance of a reachable config that can't reach any solution
+     */
+    int UNSOLVABLE = -1;
+    /**
+     * distance of a config that isn't in the lookup
+     */
+    int NOT_IN_TABLE = -2;
+
+    /**
+     * @return moves from the config to the nearest solution, UNSOLVABLE or NOT_IN_TABLE
+     */
+    int distanceOf(Configuration config);
+
+    /**
+     * @return number of configs in the lookup
+     */
+    int size();
+
+    /**
+     * @return what counts as a single move in this lookup
+     */
+    Solver.MoveModel getMoveModel();
+
+    /**
+     * @return true if the config is in the lookup and can reach a solution
+     */
+    default boolean isSolvable(Configuration config) {
+        return this.distanceOf(config) >= 0;
+    }
+
+    /**
+     * Finds the first neighbor of the config that is one move closer to a solution
+     *
+     * @param config the config to move on from
+     * @return the next config on a shortest path, or null if the config is
+     * solved, unsolvable or not in the lookup
+     */
+    default Configuration bestMove(Configuration config) {
+        int distance = this.distanceOf(config);
+        if (distance <= 0) {
+            return null;
+        }
+        Configuration[] best = new Configuration[1];
+        this.getMoveModel().forEachNeighbor(config, neighbor -> {
+            if (best[0] == null && this.distanceOf(neighbor) == distance - 1) {
+                best[0] = neighbor;
+            }
+        });
+        return best[0];
+    }
+}
@@ -0,0 +1,173 @@
+package commonJam.solver;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The number of moves to the nearest solution from every configuration
+ * reachable from a start, worked out once by a retrograde BFS. The whole
+ * reachable space is first listed with a forward BFS, then a second BFS
+ * runs backwards from every solution in it. Afterwards whether a config
+ * is solvable, how far it is from a solution and which move gets closer
+ * are all table lookups. Only puzzles whose moves can all be undone
+ * work, since the backward BFS walks the same neighbors forward.
+ *
+ * @author Andrew Photinakis
+ */
+public class DistanceTable implements DistanceLookup {
+
+    /**
+     * a build only asks whether to stop once this many states, to keep asking cheap
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /**
+     * every config reachable from the start, as packed states
+     */
+    private final StateTable states;
+    /**
+     * moves to the nearest solution for each numbered state
+     */
+    private final int[] distances;
+    /**
+     * what counts as a single move
+     */
+    private final Solver.MoveModel moveModel;
+
+    /**
+     * Creates a table out of already worked out distances
+     *
+     * @param states    every config reachable from the start, as packed states
+     * @param distances moves to the nearest solution for each numbered state
+     * @param moveModel what counts as a single move
+     */
+    public DistanceTable(StateTable states, int[] distances, Solver.MoveModel moveModel) {
+        this.states = states;
+        this.distances = distances;
+        this.moveModel = moveModel;
+    }
+
+    /**
+     * Lists every config reachable from the start and works out its
+     * distance to the nearest solution
+     *
+     * @param start     config to start from, which has to be packable
+     * @param moveModel what counts as a single move
+     * @return the distance table of the start's reachable space
+     */
+    public static DistanceTable build(PackedConfiguration start, Solver.MoveModel moveModel) {
+        return build(start, moveModel, () -> false);
+    }
+
+    /**
+     * Lists every config reachable from the start and works out its
+     * distance to the nearest solution, giving up as soon as it is told
+     * to stop. Whether to stop is asked every CHECK_INTERVAL states.
+     *
+     * @param start     config to start from, which has to be packable
+     * @param moveModel what counts as a single move
+     * @param stop      true once the build should be given up
+     * @return the distance table of the start's reachable space
+     * @throws CancellationException if the build was told to stop
+     */
+    public static DistanceTable build(PackedConfiguration start, Solver.MoveModel moveModel, BooleanSupplier stop) {
+        if (!start.isPackable()) {
+            throw new IllegalArgumentException("Distance tables need a packable configuration");
+        }
+        StateTable states = new StateTable();
+        states.add(start.getPackedState(), StateTable.NO_PARENT);
+        for (int head = 0; head < states.size(); head++) {
+            checkStop(stop, head);
+            int parent = head;
+            moveModel.forEachNeighbor(start.unpack(states.getState(head)), neighbor ->
+                    states.add(((PackedConfiguration) neighbor).getPackedState(), parent));
+        }
+
+        int[] distances = new int[states.size()];
+        int[] queue = new int[states.size()];
+        int[] tail = new int[1];
+        Arrays.fill(distances, UNSOLVABLE);
+        for (int i = 0; i < states.size(); i++) {
+            if (start.unpack(states.getState(i)).isSolution()) {
+                distances[i] = 0;
+                queue[tail[0]++] = i;
+            }
+        }
+        for (int head = 0; head < tail[0]; head++) {
+            checkStop(stop, head);
+            int next = distances[queue[head]] + 1;
+            moveModel.forEachNeighbor(start.unpack(states.getState(queue[head])), neighbor -> {
+                int index = states.indexOf(((PackedConfiguration) neighbor).getPackedState());
+                if (distances[index] == UNSOLVABLE) {
+                    distances[index] = next;
+                    queue[tail[0]++] = index;
+                }
+            });
+        }
+        return new DistanceTable(states, distances, moveModel);
+    }
+
+    /**
+     * Asks whether to stop every CHECK_INTERVAL states
+     *
+     * @param stop  true once the build should be given up
+     * @param state number of the state about to be expanded
+     * @throws CancellationException if the build was told to stop
+     */
+    private static void checkStop(BooleanSupplier stop, int state) {
+        if (state % CHECK_INTERVAL == 0 && stop.getAsBoolean()) {
+            throw new CancellationException("Distance table build was stopped");
+        }
+    }
+
+    /**
+     * @return moves from the config to the nearest solution, UNSOLVABLE or NOT_IN_TABLE
+     */
+    @Override
+    public int distanceOf(Configuration config) {
+        if (!(config instanceof PackedConfiguration packed) || !packed.isPackable()) {
+            return NOT_IN_TABLE;
+        }
+        return this.distanceOfState(packed.getPackedState());
+    }
+
+    /**
+     * @return the packed state with that number
+     */
+    public long getState(int index) {
+        return this.states.getState(index);
+    }
+
+    /**
+     * @return moves to the nearest solution for the numbered state, or UNSOLVABLE
+     */
+    public int getDistance(int index) {
+        return this.distances[index];
+    }
+
+    /**
+     * @return moves to the nearest solution for the packed state, UNSOLVABLE or NOT_IN_TABLE
+     */
+    int distanceOfState(long state) {
+        int index = this.states.indexOf(state);
+        return index < 0 ? NOT_IN_TABLE : this.distances[index];
+    }
+
+    /**
+     * @return number of configs in the table
+     */
+    @Override
+    public int size() {
+        return this.states.size();
+    }
+
+    /**
+     * @return what counts as a single move in this table
+     */
+    @Override
+    public Solver.MoveModel getMoveModel() {
+        return this.moveModel;
+    }
+
+}
@@ -0,0 +1,19 @@
+package commonJam.solver;
+
+/**
+ * A configuration that can guess how far it is from a solution, so the
+ * informed searches in Solver can head for the goal first. The guess
+ * has to be admissible: never more than the real number of moves left,
+ * or the solver could return a path that isn't the shortest.
+ *
+ * @author Andrew Photinakis
+ */
+public interface HeuristicConfiguration extends Configuration {
+    /**
+     * Estimates the moves left to reach a solution
+     *
+     * @param moveModel what counts as a single move
+     * @return a lower bound on the number of moves to a solution
+     */
+    int estimateDistance(Solver.MoveModel moveModel);
+}
@@ -0,0 +1,18 @@
+package commonJam.solver;
+
+/**
+ * Receives the neighbors of a configuration one at a time as they are
+ * generated, so a search can look at each one without the configuration
+ * having to gather them into a collection first.
+ *
+ * @author Andrew Photinakis
+ */
+@FunctionalInterface
+public interface NeighborSink {
+    /**
+     * Called once for every neighbor
+     *
+     * @param neighbor the neighbor that was generated
+     */
+    void accept(Configuration neighbor);
+}
@@ -0,0 +1,28 @@
+package commonJam.solver;
+
+/**
+ * A configuration whose whole state can be packed into a single long, so
+ * the solver can keep the states it has seen in primitive arrays and only
+ * turn them back into configurations when it needs to expand one.
+ *
+ * @author Andrew Photinakis
+ */
+public interface PackedConfiguration extends Configuration {
+    /**
+     * @return true if this config's state fits in one long
+     */
+    boolean isPackable();
+
+    /**
+     * @return this config's state packed into a long
+     */
+    long getPackedState();
+
+    /**
+     * Turns a packed state of the same puzzle back into a configuration
+     *
+     * @param state a state from getPackedState
+     * @return the configuration with that state
+     */
+    Configuration unpack(long state);
+}
@@ -0,0 +1,49 @@
+package commonJam.solver;
+
+/**
+ * Watches a Solver while it searches. Every method does nothing unless
+ * it is overridden, so a listener only has to pick the events it cares
+ * about. A solver with no listener skips these calls altogether.
+ *
+ * @author Andrew Photinakis
+ */
+public interface SearchListener {
+
+    /**
+     * Called once before the search looks at anything
+     *
+     * @param start the config being solved
+     */
+    default void searchStarted(Configuration start) {
+    }
+
+    /**
+     * Called every time a config is expanded. The parallel BFS expands
+     * many configs at once and only reports whole layers.
+     *
+     * @param config the config being expanded
+     * @param depth  moves from the start, or the number of the layer in a
+     *               bidirectional search, whose layers alternate between sides
+     */
+    default void configExpanded(Configuration config, int depth) {
+    }
+
+    /**
+     * Called after a layered search has expanded a whole layer
+     *
+     * @param layer        number of the layer, in the order they were expanded
+     * @param frontierSize configs expanded in the layer
+     * @param nanos        wall time the layer took
+     */
+    default void layerCompleted(int layer, int frontierSize, long nanos) {
+    }
+
+    /**
+     * Called once after the search has finished, found or not
+     *
+     * @param statistics what the search did
+     */
+    default void searchFinished(SearchStatistics statistics) {
+    }
+
+}
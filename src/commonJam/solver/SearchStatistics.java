@@ -0,0 +1,202 @@
+package commonJam.solver;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * What one solve did: how many configs it generated and expanded, how
+ * many of the generated ones it had already seen, the most configs it
+ * was keeping track of at once, and how long it took. Configs expanded
+ * are also counted per depth, and the layered searches (the BFS kinds)
+ * time each layer. A* and IDA* don't go a layer at a time, so they
+ * leave the layer times at zero.
+ *
+ * @author Andrew Photinakis
+ */
+public class SearchStatistics {
+
+    /**
+     * neighbors generated
+     */
+    private long generated;
+    /**
+     * neighbors generated that the search had already reached
+     */
+    private long duplicates;
+    /**
+     * configs expanded
+     */
+    private int expanded;
+    /**
+     * most configs the search held in its visited set at once
+     */
+    private int peakVisited;
+    /**
+     * configs expanded at each depth, or in each layer
+     */
+    private int[] frontierSizes = new int[16];
+    /**
+     * wall time of each layer
+     */
+    private long[] layerNanos = new long[16];
+    /**
+     * one more than the deepest depth counted
+     */
+    private int depths;
+    /**
+     * when the search started
+     */
+    private long startNanos;
+    /**
+     * wall time of the whole search
+     */
+    private long wallNanos;
+
+    /**
+     * Statistics are only made by the solver, one per solve
+     */
+    SearchStatistics() {
+    }
+
+    /**
+     * Starts the clock
+     */
+    void started() {
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops the clock
+     */
+    void finished() {
+        this.wallNanos = System.nanoTime() - this.startNanos;
+    }
+
+    /**
+     * Counts configs expanded at a depth
+     *
+     * @param depth depth or layer they were expanded in
+     * @param count number of configs
+     */
+    void expanded(int depth, int count) {
+        if (depth >= this.frontierSizes.length) {
+            int length = Math.max(depth + 1, 2 * this.frontierSizes.length);
+            this.frontierSizes = Arrays.copyOf(this.frontierSizes, length);
+            this.layerNanos = Arrays.copyOf(this.layerNanos, length);
+        }
+        this.frontierSizes[depth] += count;
+        this.depths = Math.max(this.depths, depth + 1);
+        this.expanded += count;
+    }
+
+    /**
+     * Counts a generated neighbor
+     *
+     * @param fresh true if the search hadn't reached it yet
+     */
+    void generated(boolean fresh) {
+        this.generated++;
+        if (!fresh) {
+            this.duplicates++;
+        }
+    }
+
+    /**
+     * Counts many generated neighbors at once
+     *
+     * @param count      neighbors generated
+     * @param duplicates how many of them the search had already reached
+     */
+    void generated(long count, long duplicates) {
+        this.generated += count;
+        this.duplicates += duplicates;
+    }
+
+    /**
+     * Notes how big the visited set is
+     *
+     * @param size configs in the visited set
+     */
+    void visited(int size) {
+        this.peakVisited = Math.max(this.peakVisited, size);
+    }
+
+    /**
+     * Records how long a layer took
+     *
+     * @param layer number of the layer
+     * @param nanos its wall time
+     */
+    void layerDone(int layer, long nanos) {
+        this.expanded(layer, 0);
+        this.layerNanos[layer] = nanos;
+    }
+
+    /**
+     * @return neighbors generated
+     */
+    public long getGenerated() {
+        return this.generated;
+    }
+
+    /**
+     * @return neighbors generated that the search had already reached
+     */
+    public long getDuplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * @return configs expanded
+     */
+    public int getExpanded() {
+        return this.expanded;
+    }
+
+    /**
+     * @return most configs the search held in its visited set at once
+     */
+    public int getPeakVisited() {
+        return this.peakVisited;
+    }
+
+    /**
+     * @return configs expanded at each depth, or in each layer
+     */
+    public int[] getFrontierSizes() {
+        return Arrays.copyOf(this.frontierSizes, this.depths);
+    }
+
+    /**
+     * @param layer number of the layer
+     * @return configs expanded in the layer
+     */
+    public int getFrontierSize(int layer) {
+        return layer < this.depths ? this.frontierSizes[layer] : 0;
+    }
+
+    /**
+     * @return wall time of each layer, zero for searches that aren't layered
+     */
+    public long[] getLayerNanos() {
+        return Arrays.copyOf(this.layerNanos, this.depths);
+    }
+
+    /**
+     * @return wall time of the whole search
+     */
+    public long getWallNanos() {
+        return this.wallNanos;
+    }
+
+    /**
+     * @return String of the totals
+     */
+    @Override
+    public String toString() {
+        return "generated=" + this.generated + ", duplicates=" + this.duplicates + ", expanded=" + this.expanded
+                + ", peakVisited=" + this.peakVisited + ", depths=" + this.depths
+                + ", ms=" + String.format(Locale.ROOT, "%.3f", this.wallNanos / 1e6);
+    }
+
+}
@@ -0,0 +1,268 @@
+package commonJam.solver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A file of distance tables for many puzzles, written once and then
+ * memory mapped so lookups start straight away and the tables never have
+ * to be read onto the heap. Each puzzle is found by a 64 bit key the
+ * caller works out from the parsed puzzle, together with the move model
+ * its table was built for.
+ * <p>
+ * The file starts with a header (magic, version, number of tables) and a
+ * directory of (puzzle key, move model, number of states, offset) entries.
+ * Each table is its packed states sorted in ascending order followed by
+ * the distance of each one as a short, so a lookup is a binary search
+ * over the mapped states.
+ *
+ * @author Andrew Photinakis
+ */
+public class SolutionDatabase {
+
+    /**
+     * first int of every solution database file, "JAMD"
+     */
+    public static final int MAGIC = 0x4A414D44;
+    /**
+     * version of the file layout
+     */
+    public static final int VERSION = 1;
+    /**
+     * bytes taken by magic, version and number of tables
+     */
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    /**
+     * bytes taken by one directory entry
+     */
+    private static final int ENTRY_BYTES = Long.BYTES + 2 * Integer.BYTES + Long.BYTES;
+    /**
+     * bytes taken by one state and its distance
+     */
+    private static final int STATE_BYTES = Long.BYTES + Short.BYTES;
+
+    /**
+     * A table to write, under the key of the puzzle it belongs to
+     *
+     * @param puzzleKey key of the puzzle
+     * @param table     the puzzle's distance table
+     */
+    public record Entry(long puzzleKey, DistanceTable table) {
+    }
+
+    /**
+     * Where a table is found in the directory
+     *
+     * @param puzzleKey key of the puzzle
+     * @param moveModel move model the table was built for
+     */
+    private record Key(long puzzleKey, Solver.MoveModel moveModel) {
+    }
+
+    /**
+     * the mapped tables in the file
+     */
+    private final Map<Key, DistanceLookup> tables;
+
+    /**
+     * @param tables the mapped tables in the file
+     */
+    private SolutionDatabase(Map<Key, DistanceLookup> tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Opens a solution database, mapping every table in it
+     *
+     * @param file the database file
+     * @return the opened database
+     * @throws IOException if the file can't be read, isn't a solution database
+     *                     or has a header that doesn't fit the file
+     */
+    public static SolutionDatabase open(Path file) throws IOException {
+        Map<Key, DistanceLookup> tables = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not a version " + VERSION + " solution database: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " solution database: " + file);
+            }
+            int count = header.getInt();
+            long headerSize = HEADER_BYTES + (long) count * ENTRY_BYTES;
+            if (count < 0 || headerSize > fileSize) {
+                throw new IOException("Solution database is cut short: " + file);
+            }
+            ByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, (long) count * ENTRY_BYTES);
+            for (int i = 0; i < count; i++) {
+                long puzzleKey = directory.getLong();
+                int model = directory.getInt();
+                int size = directory.getInt();
+                long offset = directory.getLong();
+                /** every table has to lie past the directory and within the file */
+                if (model < 0 || model >= Solver.MoveModel.values().length || size < 0
+                        || (long) size * STATE_BYTES > Integer.MAX_VALUE || offset < headerSize
+                        || offset > fileSize - (long) size * STATE_BYTES) {
+                    throw new IOException("Solution database has a bad entry for table " + i + ": " + file);
+                }
+                Solver.MoveModel moveModel = Solver.MoveModel.values()[model];
+                MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) size * STATE_BYTES);
+                tables.put(new Key(puzzleKey, moveModel), new MappedTable(
+                        section.slice(0, size * Long.BYTES).asLongBuffer(),
+                        section.slice(size * Long.BYTES, size * Short.BYTES).asShortBuffer(),
+                        moveModel));
+            }
+        }
+        return new SolutionDatabase(tables);
+    }
+
+    /**
+     * Writes a solution database holding the tables
+     *
+     * @param file    the database file, replaced if it exists
+     * @param entries the tables to write with their puzzle keys
+     * @throws IOException if the file can't be written or a table is too big
+     */
+    public static void write(Path file, List<Entry> entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long headerSize = HEADER_BYTES + (long) entries.size() * ENTRY_BYTES;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize);
+            header.putInt(MAGIC).putInt(VERSION).putInt(entries.size());
+
+            long offset = (headerSize + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+            for (Entry entry : entries) {
+                DistanceTable table = entry.table();
+                int size = table.size();
+                if ((long) size * STATE_BYTES > Integer.MAX_VALUE) {
+                    throw new IOException("Table for puzzle " + entry.puzzleKey() + " is too big to map");
+                }
+                header.putLong(entry.puzzleKey()).putInt(table.getMoveModel().ordinal()).putInt(size).putLong(offset);
+
+                long[] states = new long[size];
+                for (int i = 0; i < size; i++) {
+                    states[i] = table.getState(i);
+                }
+                Arrays.sort(states);
+                MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) size * STATE_BYTES);
+                LongBuffer stateBuffer = section.slice(0, size * Long.BYTES).asLongBuffer();
+                ShortBuffer distanceBuffer = section.slice(size * Long.BYTES, size * Short.BYTES).asShortBuffer();
+                for (long state : states) {
+                    int distance = table.distanceOfState(state);
+                    if (distance > Short.MAX_VALUE) {
+                        throw new IOException("Distance " + distance + " doesn't fit in the database");
+                    }
+                    stateBuffer.put(state);
+                    distanceBuffer.put((short) distance);
+                }
+                section.force();
+                offset += ((long) size * STATE_BYTES + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+            }
+            header.force();
+        }
+    }
+
+    /**
+     * Finds the table for a puzzle
+     *
+     * @param puzzleKey key of the puzzle
+     * @param moveModel move model the table was built for
+     * @return the puzzle's table, or null if the database doesn't have it
+     */
+    public DistanceLookup find(long puzzleKey, Solver.MoveModel moveModel) {
+        return this.tables.get(new Key(puzzleKey, moveModel));
+    }
+
+    /**
+     * @return number of tables in the database
+     */
+    public int size() {
+        return this.tables.size();
+    }
+
+    /**
+     * A distance table read straight out of the mapped file
+     */
+    private static class MappedTable implements DistanceLookup {
+
+        /**
+         * packed states, sorted
+         */
+        private final LongBuffer states;
+        /**
+         * distance of each state
+         */
+        private final ShortBuffer distances;
+        /**
+         * what counts as a single move
+         */
+        private final Solver.MoveModel moveModel;
+
+        /**
+         * @param states    packed states, sorted
+         * @param distances distance of each state
+         * @param moveModel what counts as a single move
+         */
+        MappedTable(LongBuffer states, ShortBuffer distances, Solver.MoveModel moveModel) {
+            this.states = states;
+            this.distances = distances;
+            this.moveModel = moveModel;
+        }
+
+        /**
+         * Binary searches the mapped states for the config's packed state
+         *
+         * @return moves from the config to the nearest solution, UNSOLVABLE or NOT_IN_TABLE
+         */
+        @Override
+        public int distanceOf(Configuration config) {
+            if (!(config instanceof PackedConfiguration packed) || !packed.isPackable()) {
+                return NOT_IN_TABLE;
+            }
+            long state = packed.getPackedState();
+            int low = 0;
+            int high = this.states.limit() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long probe = this.states.get(mid);
+                if (probe < state) {
+                    low = mid + 1;
+                } else if (probe > state) {
+                    high = mid - 1;
+                } else {
+                    return this.distances.get(mid);
+                }
+            }
+            return NOT_IN_TABLE;
+        }
+
+        /**
+         * @return number of states in the table
+         */
+        @Override
+        public int size() {
+            return this.states.limit();
+        }
+
+        /**
+         * @return what counts as a single move in the table
+         */
+        @Override
+        public Solver.MoveModel getMoveModel() {
+            return this.moveModel;
+        }
+    }
+
+}
@@ -1,73 +1,880 @@
 package commonJam.solver;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
 
 /**
  * Class that creates the common Solver that is used for
- * solving Configuration puzzles
+ * solving Configuration puzzles.
+ * Everything a search keeps track of belongs to the solver doing it,
+ * so separate solvers can solve at the same time on separate threads.
+ * A single solver runs one solve at a time, and every search starts
+ * through solve, so that holds for all of them.
  *
  * @author Andrew Photinakis
  */
 public class Solver {
     /**
-     * number of configs made
+     * most configs IDA* remembers per iteration to skip ones it has already searched,
+     * and most configs it remembers the bound cutting off
      */
-    public static int configcount;
+    public static final int MAX_TRANSPOSITIONS = 1 << 22;
     /**
-     * holds the current config
+     * what an IDA* search returns once it has found a solution
      */
-    public static Configuration currConfig;
+    private static final int FOUND = -1;
     /**
-     * hashmap of configuration predecessors
+     * the clock is only read once this many expansions, to keep the time limit cheap
+     */
+    private static final int CLOCK_INTERVAL = 256;
+    /**
+     * hashmap of configuration predecessors, null after a packed BFS
      */
     public HashMap<Configuration, Configuration> predecessors;
     /**
-     * Solver constructor that starts the config count at 0
+     * what counts as a single move between configurations
+     */
+    private final MoveModel moveModel;
+    /**
+     * how the search looks for the shortest path
+     */
+    private final Strategy strategy;
+    /**
+     * number of threads the parallel BFS expands each layer with
+     */
+    private final int parallelism;
+    /**
+     * config both sides of a bidirectional search have reached, null until they meet
+     */
+    private Configuration meeting;
+    /**
+     * configs searched in the current IDA* pass, mapped to the fewest moves they were reached in
+     */
+    private HashMap<Configuration, Integer> transpositions;
+    /**
+     * configs the bound cut off in the current IDA* pass before it had searched them
+     */
+    private Set<Configuration> cutOff;
+    /**
+     * whether the current IDA* pass cut off more configs than it could remember
+     */
+    private boolean cutOffFull;
+    /**
+     * what the last solve did
+     */
+    private SearchStatistics statistics = new SearchStatistics();
+    /**
+     * watches every solve, null if nothing is watching
+     */
+    private SearchListener listener;
+    /**
+     * longest a solve may take, null for no limit
+     */
+    private Duration timeLimit;
+    /**
+     * System.nanoTime the running solve has to finish by, if it has a time limit
+     */
+    private long deadline;
+    /**
+     * set once the solver is cancelled, from any thread
+     */
+    private volatile boolean cancelled;
+    /**
+     * set if the solver cancelled itself by running past its time limit
+     */
+    private volatile boolean timedOut;
+    /**
+     * set while a solve is running, so the same solver isn't used by two threads at once
+     */
+    private final AtomicBoolean solving = new AtomicBoolean();
+
+    /**
+     * The kinds of moves the search can take in one step
+     */
+    public enum MoveModel {
+        /**
+         * one step is a single shift, as generated by forEachNeighbor
+         */
+        SINGLE_STEP,
+        /**
+         * one step is a whole slide of any length, as generated by forEachSlideNeighbor
+         */
+        SLIDE;
+
+        /**
+         * Hands every neighbor the config can reach in one move of this kind to the sink
+         *
+         * @param config config to expand
+         * @param sink   receives each neighbor
+         */
+        public void forEachNeighbor(Configuration config, NeighborSink sink) {
+            if (this == SLIDE) {
+                config.forEachSlideNeighbor(sink);
+            } else {
+                config.forEachNeighbor(sink);
+            }
+        }
+    }
+
+    /**
+     * The ways the solver can search for the shortest path
+     */
+    public enum Strategy {
+        /**
+         * plain BFS outwards from the start
+         */
+        BREADTH_FIRST,
+        /**
+         * BFS from the start and back from the goals once they are few enough to list, meeting in the middle
+         */
+        BIDIRECTIONAL,
+        /**
+         * best first search ordered by moves so far plus the estimate of moves left
+         */
+        A_STAR,
+        /**
+         * depth first A* with a growing bound, using little memory. Only for
+         * puzzles known to be solvable: proving there is no solution takes a
+         * pass over the whole reachable space for every bound, so use A_STAR
+         * when a puzzle may have none.
+         */
+        IDA_STAR,
+        /**
+         * BFS that expands each whole layer across several threads
+         */
+        PARALLEL_BREADTH_FIRST
+    }
+
+    /**
+     * Solver constructor that moves one shift at a time
      */
     public Solver() {
-        configcount = 0;
+        this(MoveModel.SINGLE_STEP);
     }
 
     /**
-     * Calls the start of the BFS algorithm
+     * Solver constructor
+     *
+     * @param moveModel what counts as a single move
+     */
+    public Solver(MoveModel moveModel) {
+        this(moveModel, Strategy.BREADTH_FIRST);
+    }
+
+    /**
+     * Solver constructor
+     *
+     * @param moveModel what counts as a single move
+     * @param strategy  how to search for the shortest path
+     */
+    public Solver(MoveModel moveModel, Strategy strategy) {
+        this(moveModel, strategy, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Solver constructor
+     *
+     * @param moveModel   what counts as a single move
+     * @param strategy    how to search for the shortest path
+     * @param parallelism number of threads for the parallel BFS
+     */
+    public Solver(MoveModel moveModel, Strategy strategy, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.moveModel = moveModel;
+        this.strategy = strategy;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Calls the start of the search the solver was made with
      *
      * @param solveThis puzzle config that is passed in
      * @return a list of configurations that is the path, if one exists
+     * @throws CancellationException if the solver is cancelled or runs past its time limit
+     * @throws IllegalStateException  if the solver is already solving on another thread
      */
     public List<Configuration> solve(Configuration solveThis) {
-        return this.getShortestPath(solveThis);
+        if (!this.solving.compareAndSet(false, true)) {
+            throw new IllegalStateException("Solver is already solving, use one solver per thread");
+        }
+        try {
+            return switch (this.strategy) {
+                case BREADTH_FIRST -> this.getShortestPath(solveThis);
+                case BIDIRECTIONAL -> this.getShortestPathBidirectional(solveThis);
+                case A_STAR -> this.getShortestPathAStar(solveThis);
+                case IDA_STAR -> this.getShortestPathIdaStar(solveThis);
+                case PARALLEL_BREADTH_FIRST -> this.getShortestPathParallel(solveThis);
+            };
+        } finally {
+            this.solving.set(false);
+        }
+    }
+
+    /**
+     * Solves on another thread. Cancelling the future cancels the search,
+     * and a search that runs past the time limit completes the future
+     * with a TimeoutException.
+     *
+     * @param solveThis puzzle config that is passed in
+     * @param executor  runs the search
+     * @return the path, empty if there is no solution
+     */
+    public CompletableFuture<List<Configuration>> solveAsync(Configuration solveThis, Executor executor) {
+        CompletableFuture<List<Configuration>> future = new CompletableFuture<>();
+        future.whenComplete((path, error) -> {
+            if (future.isCancelled()) {
+                this.cancel();
+            }
+        });
+        executor.execute(() -> {
+            try {
+                future.complete(this.solve(solveThis));
+            } catch (CancellationException e) {
+                future.completeExceptionally(this.timedOut ? new TimeoutException(e.getMessage()) : e);
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stops the search as soon as it next expands a config. Safe to call
+     * from any thread. A cancelled solver stays cancelled.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Starts the time limit for work done on the solver's behalf outside
+     * a solve, such as building a distance table to answer from instead.
+     * The check it hands back cancels the solver once the limit has passed,
+     * just as a solve running past it would.
+     *
+     * @return true once the solver has been cancelled or has run out of time
+     */
+    public BooleanSupplier watchTimeLimit() {
+        if (timeLimit != null) {
+            deadline = System.nanoTime() + timeLimit.toNanos();
+        }
+        return () -> {
+            if (!cancelled && timeLimit != null && System.nanoTime() - deadline > 0) {
+                timedOut = true;
+                cancelled = true;
+            }
+            return cancelled;
+        };
+    }
+
+    /**
+     * @return true if the solver has been cancelled or ran out of time
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * @return true if the solver cancelled itself by running past its time limit
+     */
+    public boolean hasTimedOut() {
+        return this.timedOut;
     }
 
     /**
-     * First part of the BFS algorithm that makes the predecessor map
+     * @param timeLimit longest each solve may take from now on, null for no limit
+     */
+    public void setTimeLimit(Duration timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * First part of the BFS algorithm that makes the predecessor map.
+     * Configs that pack into a long are searched with primitive tables
+     * instead, see getShortestPathPacked.
      *
      * @param puzzle puzzle that is passed in to be solved in the method above
      * @return a list of configurations that is the path, if one exists
      */
-    public List<Configuration> getShortestPath(Configuration puzzle) {
+    private List<Configuration> getShortestPath(Configuration puzzle) {
+        if (puzzle instanceof PackedConfiguration packed && packed.isPackable()) {
+            return this.getShortestPathPacked(packed);
+        }
 
-        List<Configuration> queue = new LinkedList<>();
+        ArrayDeque<Configuration> queue = new ArrayDeque<>();
         predecessors = new HashMap<>();
         predecessors.put(puzzle, puzzle);
         queue.add(puzzle);
+        begin(puzzle);
 
+        /** the queue holds the rest of this layer followed by the start of the next */
+        int depth = 0;
+        int remaining = 1;
+        long layerStart = System.nanoTime();
         while (!queue.isEmpty()) {
-            currConfig = queue.remove(0);
-            configcount++;
-            if (currConfig.isSolution()) {
-                return constructPath(predecessors, puzzle, currConfig);
-            }
-            for (Configuration neighbor : currConfig.getNeighbors()) {
-                if (!predecessors.containsKey(neighbor)) {
-                    predecessors.put(neighbor, currConfig);
+            Configuration current = queue.poll();
+            if (current.isSolution()) {
+                endLayer(depth, layerStart);
+                return finish(constructPath(predecessors, puzzle, current));
+            }
+            expand(current, depth, neighbor -> {
+                boolean fresh = predecessors.putIfAbsent(neighbor, current) == null;
+                if (fresh) {
                     queue.add(neighbor);
-                    configcount++;
                 }
+                statistics.generated(fresh);
+            });
+            if (--remaining == 0) {
+                endLayer(depth++, layerStart);
+                remaining = queue.size();
+                layerStart = System.nanoTime();
             }
         }
-        return new LinkedList<>();
+        statistics.visited(predecessors.size());
+        return finish(new ArrayList<>());
+    }
+
+    /**
+     * BFS over packed states. Every state seen goes into a StateTable along
+     * with the number of the state it came from, and since the table numbers
+     * states in the order they are found, walking those numbers in order is
+     * the BFS queue. Configs only exist while a state is being expanded.
+     *
+     * @param puzzle puzzle that is passed in to be solved
+     * @return a list of configurations that is the path, if one exists
+     */
+    private List<Configuration> getShortestPathPacked(PackedConfiguration puzzle) {
+        StateTable table = new StateTable();
+        table.add(puzzle.getPackedState(), StateTable.NO_PARENT);
+        predecessors = null;
+        begin(puzzle);
+
+        int depth = 0;
+        int layerEnd = 1;
+        long layerStart = System.nanoTime();
+        for (int head = 0; head < table.size(); head++) {
+            if (head == layerEnd) {
+                endLayer(depth++, layerStart);
+                layerEnd = table.size();
+                layerStart = System.nanoTime();
+            }
+            Configuration current = head == 0 ? puzzle : puzzle.unpack(table.getState(head));
+            if (current.isSolution()) {
+                endLayer(depth, layerStart);
+                statistics.visited(table.size());
+                return finish(constructPath(table, puzzle, head));
+            }
+            int parent = head;
+            expand(current, depth, neighbor ->
+                    statistics.generated(table.add(((PackedConfiguration) neighbor).getPackedState(), parent) >= 0));
+        }
+        endLayer(depth, layerStart);
+        statistics.visited(table.size());
+        return finish(new ArrayList<>());
+    }
+
+    /**
+     * Bidirectional version of the BFS. One search grows out from the start
+     * and another grows back from the goals, one whole layer at a time,
+     * always growing whichever frontier is smaller. The first config both
+     * searches have reached lies on a shortest path.
+     * <p>
+     * The goals are only listed once there are no more of them than the
+     * start's frontier holds, asking again each time the frontier doubles.
+     * Until then the search only grows forwards, stopping at the first
+     * solution it reaches, so a puzzle with more goals than states it can
+     * reach never pays for listing them.
+     *
+     * @param puzzle puzzle that is passed in to be solved
+     * @return a list of configurations that is the path, if one exists
+     */
+    private List<Configuration> getShortestPathBidirectional(Configuration puzzle) {
+        if (puzzle.isSolution()) {
+            return this.getShortestPath(puzzle);
+        }
+
+        predecessors = new HashMap<>();
+        HashMap<Configuration, Configuration> successors = new HashMap<>();
+        List<Configuration> forward = new ArrayList<>();
+        List<Configuration> backward = null;
+        predecessors.put(puzzle, puzzle);
+        forward.add(puzzle);
+        begin(puzzle);
+        meeting = null;
+
+        int goalLimit = 1;
+        for (int layer = 0; !forward.isEmpty() && (backward == null || !backward.isEmpty()); layer++) {
+            long layerStart = System.nanoTime();
+            if (backward == null && forward.size() >= goalLimit) {
+                Collection<Configuration> goals = puzzle.getGoals(forward.size());
+                if (!goals.isEmpty()) {
+                    backward = new ArrayList<>(goals);
+                    for (Configuration goal : goals) {
+                        successors.put(goal, goal);
+                    }
+                }
+                goalLimit = 2 * forward.size();
+            }
+            if (backward == null || forward.size() <= backward.size()) {
+                forward = expandLayer(forward, layer, predecessors, successors, backward == null);
+            } else {
+                backward = expandLayer(backward, layer, successors, predecessors, false);
+            }
+            statistics.visited(predecessors.size() + successors.size());
+            endLayer(layer, layerStart);
+            if (meeting != null) {
+                successors.putIfAbsent(meeting, meeting);
+                List<Configuration> path = constructPath(predecessors, puzzle, meeting);
+                Configuration current = meeting;
+                Configuration next = successors.get(current);
+                while (!next.equals(current)) {
+                    path.add(next);
+                    current = next;
+                    next = successors.get(current);
+                }
+                return finish(path);
+            }
+        }
+        return finish(new ArrayList<>());
+    }
+
+    /**
+     * Expands one layer of a bidirectional search, stopping at the first
+     * new config the other side has already reached
+     *
+     * @param layer   the frontier of this side
+     * @param depth   number of the layer among both sides' layers
+     * @param visited configs this side has reached, mapped to the one they were reached from
+     * @param other   configs the other side has reached
+     * @param anyGoal true to also stop at any solution, while the goals aren't listed
+     * @return the next frontier of this side
+     */
+    private List<Configuration> expandLayer(List<Configuration> layer, int depth,
+                                            HashMap<Configuration, Configuration> visited,
+                                            HashMap<Configuration, Configuration> other, boolean anyGoal) {
+        List<Configuration> next = new ArrayList<>();
+        for (Configuration current : layer) {
+            expand(current, depth, neighbor -> {
+                boolean fresh = visited.putIfAbsent(neighbor, current) == null;
+                if (fresh) {
+                    next.add(neighbor);
+                    if (meeting == null && (other.containsKey(neighbor) || anyGoal && neighbor.isSolution())) {
+                        meeting = neighbor;
+                    }
+                }
+                statistics.generated(fresh);
+            });
+            if (meeting != null) {
+                break;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Parallel version of the BFS. Each layer is checked for a solution and
+     * then expanded across a pool of threads, with the new configs of the
+     * next layer collected in a concurrent map. Every new config remembers
+     * the earliest spot in the layer it was generated from, and the next
+     * layer is put in that order, which is the order the plain BFS queue
+     * would have. That way this finds the exact same path as the plain BFS.
+     *
+     * @param puzzle puzzle that is passed in to be solved
+     * @return a list of configurations that is the path, if one exists
+     */
+    private List<Configuration> getShortestPathParallel(Configuration puzzle) {
+        predecessors = new HashMap<>();
+        predecessors.put(puzzle, puzzle);
+        List<Configuration> layer = new ArrayList<>();
+        layer.add(puzzle);
+        begin(puzzle);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int depth = 0; !layer.isEmpty(); depth++) {
+                checkCancelled(true);
+                List<Configuration> current = layer;
+                long layerStart = System.nanoTime();
+                OptionalInt solution = pool.invoke(ForkJoinTask.adapt(() -> IntStream.range(0, current.size())
+                        .parallel()
+                        .filter(i -> current.get(i).isSolution())
+                        .findFirst()));
+                if (solution.isPresent()) {
+                    endLayer(depth, 0, layerStart);
+                    return finish(constructPath(predecessors, puzzle, current.get(solution.getAsInt())));
+                }
+
+                ConcurrentHashMap<Configuration, Long> discovered = new ConcurrentHashMap<>();
+                LongAdder generated = new LongAdder();
+                pool.invoke(ForkJoinTask.adapt(() -> IntStream.range(0, current.size()).parallel().forEach(i -> {
+                    int[] order = new int[1];
+                    generate(current.get(i), neighbor -> {
+                        long spot = ((long) i << Integer.SIZE) | order[0]++;
+                        if (!predecessors.containsKey(neighbor)) {
+                            discovered.merge(neighbor, spot, Math::min);
+                        }
+                    });
+                    generated.add(order[0]);
+                })));
+                statistics.expanded(depth, current.size());
+                statistics.generated(generated.sum(), generated.sum() - discovered.size());
+
+                List<Map.Entry<Configuration, Long>> found = new ArrayList<>(discovered.entrySet());
+                found.sort(Map.Entry.comparingByValue());
+                layer = new ArrayList<>(found.size());
+                for (Map.Entry<Configuration, Long> entry : found) {
+                    predecessors.put(entry.getKey(), current.get((int) (entry.getValue() >>> Integer.SIZE)));
+                    layer.add(entry.getKey());
+                }
+                statistics.visited(predecessors.size());
+                endLayer(depth, current.size(), layerStart);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return finish(new ArrayList<>());
+    }
+
+    /**
+     * A* version of the search. Configs come off a priority queue in order
+     * of moves so far plus the estimate of moves left, deepest first on
+     * ties. Since the estimate never overshoots, the first solution taken
+     * off the queue is at the end of a shortest path. Configs that don't
+     * give an estimate count as zero, which makes this a plain uniform
+     * cost search.
+     *
+     * @param puzzle puzzle that is passed in to be solved
+     * @return a list of configurations that is the path, if one exists
+     */
+    private List<Configuration> getShortestPathAStar(Configuration puzzle) {
+        PriorityQueue<Node> open = new PriorityQueue<>();
+        HashMap<Configuration, Integer> moves = new HashMap<>();
+        predecessors = new HashMap<>();
+        predecessors.put(puzzle, puzzle);
+        moves.put(puzzle, 0);
+        open.add(new Node(puzzle, 0, estimate(puzzle)));
+        begin(puzzle);
+
+        while (!open.isEmpty()) {
+            Node node = open.poll();
+            Configuration current = node.config();
+            if (node.moves() > moves.get(current)) {
+                continue;
+            }
+            if (current.isSolution()) {
+                statistics.visited(moves.size());
+                return finish(constructPath(predecessors, puzzle, current));
+            }
+            int nextMoves = node.moves() + 1;
+            expand(current, node.moves(), neighbor -> {
+                Integer known = moves.get(neighbor);
+                boolean fresh = known == null || nextMoves < known;
+                if (fresh) {
+                    moves.put(neighbor, nextMoves);
+                    predecessors.put(neighbor, current);
+                    open.add(new Node(neighbor, nextMoves, nextMoves + estimate(neighbor)));
+                }
+                statistics.generated(fresh);
+            });
+        }
+        statistics.visited(moves.size());
+        return finish(new ArrayList<>());
+    }
+
+    /**
+     * IDA* version of the search. It runs depth first searches that give
+     * up on any config whose moves so far plus estimate goes over a bound,
+     * raising the bound to the smallest value that went over each time,
+     * so only the current path and a capped table of already searched
+     * configs are kept in memory. The first solution found is at the end
+     * of a shortest path.
+     * <p>
+     * An unsolvable puzzle only gives up once a pass searches every config
+     * it can reach, after one pass per bound up to the deepest of them,
+     * each pass searching the space again since the table can't carry
+     * over. On jam-8 that is over 8M expansions against 33K for A*, so
+     * A* is the strategy to use when a puzzle may have no solution.
+     *
+     * @param puzzle puzzle that is passed in to be solved
+     * @return a list of configurations that is the path, if one exists
+     */
+    private List<Configuration> getShortestPathIdaStar(Configuration puzzle) {
+        List<Configuration> path = new ArrayList<>();
+        path.add(puzzle);
+        begin(puzzle);
+        int bound = estimate(puzzle);
+
+        try {
+            while (true) {
+                transpositions = new HashMap<>();
+                cutOff = new HashSet<>();
+                cutOffFull = false;
+                int next = searchWithin(path, 0, bound);
+                statistics.visited(transpositions.size());
+                if (next == FOUND) {
+                    return finish(new ArrayList<>(path));
+                }
+                cutOff.removeIf(transpositions::containsKey);
+                if (next == Integer.MAX_VALUE
+                        || (cutOff.isEmpty() && !cutOffFull && transpositions.size() < MAX_TRANSPOSITIONS)) {
+                    return finish(new ArrayList<>());
+                }
+                bound = next;
+            }
+        } finally {
+            /** lets the tables go as soon as the search is over */
+            transpositions = null;
+            cutOff = null;
+        }
+    }
+
+    /**
+     * One depth first pass of IDA* from the last config on the path.
+     * Configs cut off by the bound that this pass never searched are
+     * remembered, up to MAX_TRANSPOSITIONS of them, so once a pass has
+     * searched every config it can reach without finding a solution the
+     * search knows to give up. A pass that cut off more than that never
+     * counts as having searched everything.
+     *
+     * @param path  the configs from the start to the one being searched
+     * @param moves moves taken to reach the last config on the path
+     * @param bound largest moves plus estimate allowed in this pass
+     * @return FOUND if a solution was reached, otherwise the smallest
+     * moves plus estimate that went over the bound
+     */
+    private int searchWithin(List<Configuration> path, int moves, int bound) {
+        Configuration current = path.get(path.size() - 1);
+        Integer seen = transpositions.get(current);
+        int total = moves + estimate(current);
+        if (total > bound) {
+            if (seen == null) {
+                if (cutOff.size() < MAX_TRANSPOSITIONS) {
+                    cutOff.add(current);
+                } else {
+                    cutOffFull = true;
+                }
+            }
+            return total;
+        }
+        if (current.isSolution()) {
+            return FOUND;
+        }
+        if (seen != null && seen <= moves) {
+            statistics.generated(0, 1);
+            return Integer.MAX_VALUE;
+        }
+        if (seen != null || transpositions.size() < MAX_TRANSPOSITIONS) {
+            transpositions.put(current, moves);
+        }
+
+        List<Configuration> neighbors = new ArrayList<>();
+        expand(current, moves, neighbors::add);
+        statistics.generated(neighbors.size(), 0);
+        int smallest = Integer.MAX_VALUE;
+        for (Configuration neighbor : neighbors) {
+            path.add(neighbor);
+            int result = searchWithin(path, moves + 1, bound);
+            if (result == FOUND) {
+                return FOUND;
+            }
+            smallest = Math.min(smallest, result);
+            path.remove(path.size() - 1);
+        }
+        return smallest;
+    }
+
+    /**
+     * @return the config's estimate of the moves left, 0 if it doesn't give one
+     */
+    private int estimate(Configuration config) {
+        if (config instanceof HeuristicConfiguration heuristic) {
+            return heuristic.estimateDistance(moveModel);
+        }
+        return 0;
+    }
+
+    /**
+     * A config waiting on the A* queue
+     *
+     * @param config the config
+     * @param moves  moves taken to reach it
+     * @param total  moves plus the estimate of moves left
+     */
+    private record Node(Configuration config, int moves, int total) implements Comparable<Node> {
+        @Override
+        public int compareTo(Node other) {
+            if (this.total != other.total) {
+                return Integer.compare(this.total, other.total);
+            }
+            return Integer.compare(other.moves, this.moves);
+        }
+    }
+
+    /**
+     * Hands every neighbor of the config to the sink, using the move model
+     * the solver was made with
+     *
+     * @param current config to expand
+     * @param depth   moves the config is from the start, or its layer in a bidirectional search
+     * @param sink    receives each neighbor
+     */
+    private void expand(Configuration current, int depth, NeighborSink sink) {
+        checkCancelled(statistics.getExpanded() % CLOCK_INTERVAL == 0);
+        statistics.expanded(depth, 1);
+        if (listener != null) {
+            listener.configExpanded(current, depth);
+        }
+        generate(current, sink);
+    }
+
+    /**
+     * Starts the statistics of a new solve
+     *
+     * @param start the config being solved
+     */
+    private void begin(Configuration start) {
+        checkCancelled(false);
+        statistics = new SearchStatistics();
+        statistics.started();
+        if (timeLimit != null) {
+            deadline = System.nanoTime() + timeLimit.toNanos();
+        }
+        if (listener != null) {
+            listener.searchStarted(start);
+        }
+    }
+
+    /**
+     * Stops the search if the solver has been cancelled or has run past
+     * its time limit
+     *
+     * @param readClock true to check the time limit as well
+     * @throws CancellationException to unwind the search
+     */
+    private void checkCancelled(boolean readClock) {
+        if (readClock && !cancelled && timeLimit != null && System.nanoTime() - deadline > 0) {
+            timedOut = true;
+            cancelled = true;
+        }
+        if (cancelled) {
+            throw new CancellationException(timedOut ? "Search ran past its time limit of " + timeLimit
+                    : "Search was cancelled");
+        }
+    }
+
+    /**
+     * Ends a layer whose configs were counted as they were expanded
+     *
+     * @param layer number of the layer
+     * @param start when the layer started
+     */
+    private void endLayer(int layer, long start) {
+        endLayer(layer, statistics.getFrontierSize(layer), start);
+    }
+
+    /**
+     * Records how long a layer took and tells the listener
+     *
+     * @param layer        number of the layer
+     * @param frontierSize configs expanded in the layer
+     * @param start        when the layer started
+     */
+    private void endLayer(int layer, int frontierSize, long start) {
+        long nanos = System.nanoTime() - start;
+        statistics.layerDone(layer, nanos);
+        if (listener != null) {
+            listener.layerCompleted(layer, frontierSize, nanos);
+        }
+    }
+
+    /**
+     * Stops the statistics of the solve and tells the listener
+     *
+     * @param path the path the solve found
+     * @return the same path
+     */
+    private List<Configuration> finish(List<Configuration> path) {
+        statistics.finished();
+        if (listener != null) {
+            listener.searchFinished(statistics);
+        }
+        return path;
+    }
+
+    /**
+     * Hands every neighbor of the config to the sink without counting it as
+     * expanded, so it can be called from several threads at once
+     *
+     * @param current config to expand
+     * @param sink    receives each neighbor
+     */
+    private void generate(Configuration current, NeighborSink sink) {
+        moveModel.forEachNeighbor(current, sink);
+    }
+
+    /**
+     * @return number of configs expanded by the last solve
+     */
+    public int getExpanded() {
+        return statistics.getExpanded();
+    }
+
+    /**
+     * @return what the last solve did
+     */
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @param listener watches every solve from now on, null to stop watching
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return how this solver searches
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return number of threads the parallel BFS uses
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return what counts as a single move for this solver
+     */
+    public MoveModel getMoveModel() {
+        return moveModel;
     }
 
     /**
@@ -81,15 +888,35 @@ public class Solver {
      */
     private List<Configuration> constructPath(HashMap<Configuration, Configuration> predecessors,
                                               Configuration puzzleToSolve, Configuration solution) {
-        List<Configuration> path = new LinkedList<>();
+        List<Configuration> path = new ArrayList<>();
         if (predecessors.containsKey(solution)) {
             Configuration currentConfig = solution;
             while (currentConfig != puzzleToSolve) {
-                path.add(0, currentConfig);
+                path.add(currentConfig);
                 currentConfig = predecessors.get(currentConfig);
             }
-            path.add(0, puzzleToSolve);
+            path.add(puzzleToSolve);
+            Collections.reverse(path);
+        }
+        return path;
+    }
+
+    /**
+     * Constructs the shortest path from the start config to the solution
+     * found by the packed BFS, unpacking each state along the way.
+     *
+     * @param table         the states seen by the search
+     * @param puzzleToSolve configuration puzzle to solve, state number 0
+     * @param solution      number of the solution state
+     * @return the path from the start to finish
+     */
+    private List<Configuration> constructPath(StateTable table, PackedConfiguration puzzleToSolve, int solution) {
+        List<Configuration> path = new ArrayList<>();
+        for (int index = solution; index > 0; index = table.getParent(index)) {
+            path.add(puzzleToSolve.unpack(table.getState(index)));
         }
+        path.add(puzzleToSolve);
+        Collections.reverse(path);
         return path;
     }
 
@@ -0,0 +1,150 @@
+package commonJam.solver;
+
+import java.util.Arrays;
+
+/**
+ * Visited set and predecessor map for searches over packed states.
+ * States are numbered in the order they are added, and each one keeps
+ * the number of the state it was reached from, all in primitive arrays.
+ * Lookups go through an open addressing table of those numbers, so a
+ * state costs about twenty bytes instead of a boxed map entry and a
+ * configuration object. Because states are numbered in the order they
+ * are added, a BFS can use the numbers themselves as its queue.
+ *
+ * @author Andrew Photinakis
+ */
+public class StateTable {
+
+    /**
+     * marks a state with no predecessor
+     */
+    public static final int NO_PARENT = -1;
+    /**
+     * table slots start out this many
+     */
+    private static final int INITIAL_SLOTS = 1 << 10;
+
+    /**
+     * every state added, in the order they were added
+     */
+    private long[] states;
+    /**
+     * number of the state each state was reached from
+     */
+    private int[] parents;
+    /**
+     * open addressing table of state numbers plus one, 0 for an empty slot
+     */
+    private int[] slots;
+    /**
+     * number of states added
+     */
+    private int size;
+
+    /**
+     * Creates an empty table
+     */
+    public StateTable() {
+        this.states = new long[INITIAL_SLOTS / 2];
+        this.parents = new int[INITIAL_SLOTS / 2];
+        this.slots = new int[INITIAL_SLOTS];
+    }
+
+    /**
+     * Adds a state unless it is already in the table
+     *
+     * @param state  the packed state
+     * @param parent number of the state it was reached from, or NO_PARENT
+     * @return the number given to the state, or -1 if it was already there
+     */
+    public int add(long state, int parent) {
+        int mask = this.slots.length - 1;
+        int slot = mix(state) & mask;
+        while (this.slots[slot] != 0) {
+            if (this.states[this.slots[slot] - 1] == state) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (this.size == this.states.length) {
+            this.grow();
+            return this.add(state, parent);
+        }
+        this.states[this.size] = state;
+        this.parents[this.size] = parent;
+        this.slots[slot] = ++this.size;
+        return this.size - 1;
+    }
+
+    /**
+     * @return the number of the state, or -1 if it isn't in the table
+     */
+    public int indexOf(long state) {
+        int mask = this.slots.length - 1;
+        int slot = mix(state) & mask;
+        while (this.slots[slot] != 0) {
+            if (this.states[this.slots[slot] - 1] == state) {
+                return this.slots[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the state with that number
+     */
+    public long getState(int index) {
+        return this.states[index];
+    }
+
+    /**
+     * @return number of the state the numbered state was reached from
+     */
+    public int getParent(int index) {
+        return this.parents[index];
+    }
+
+    /**
+     * @return number of states in the table
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Doubles the arrays, keeping the slots at most half full
+     */
+    private void grow() {
+        long capacity = this.states.length * 2L;
+        /** the slots are twice the capacity and have to fit in an int array */
+        if (capacity * 2 > 1 << 30) {
+            throw new IllegalStateException("State table is full at " + this.size + " states");
+        }
+        this.states = Arrays.copyOf(this.states, (int) capacity);
+        this.parents = Arrays.copyOf(this.parents, (int) capacity);
+        this.slots = new int[(int) capacity * 2];
+        int mask = this.slots.length - 1;
+        for (int i = 0; i < this.size; i++) {
+            int slot = mix(this.states[i]) & mask;
+            while (this.slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Spreads the bits of a packed state so nearby states land in different slots
+     *
+     * @param state the packed state
+     * @return the mixed hash
+     */
+    private static int mix(long state) {
+        long h = state * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29));
+    }
+
+}
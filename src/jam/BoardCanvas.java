@@ -0,0 +1,142 @@
+package jam;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+import java.io.IOException;
+
+/**
+ * Draws the game board on a single canvas that lives as long as the GUI.
+ * Only the cells whose car changed since the last configuration drawn
+ * are painted again, so a move or a hint touches a few cells instead of
+ * rebuilding the scene graph, and a click is mapped back to the cell it
+ * landed on and handed to the model's selection.
+ *
+ * @author Andrew Photinakis
+ */
+public class BoardCanvas extends Canvas {
+
+    /**
+     * color of a cell no car covers
+     */
+    private static final Color EMPTY_COLOR = Color.web("#F4F4F4");
+    /**
+     * color of the lines around each cell
+     */
+    private static final Color BORDER_COLOR = Color.BLACK;
+
+    /**
+     * the model clicks are handed to
+     */
+    private final JamModel jamModel;
+    /**
+     * width and height of one cell in pixels
+     */
+    private final int cellSize;
+    /**
+     * font the car names are drawn in
+     */
+    private final Font font;
+    /**
+     * color of each car of the puzzle being drawn
+     */
+    private Color[] carColors;
+    /**
+     * configuration drawn last, null before the first one
+     */
+    private JamConfiguration drawn;
+    /**
+     * car on each cell of the configuration drawn last, -1 for an empty cell
+     */
+    private int[] drawnCells;
+
+    /**
+     * @param jamModel the model clicks are handed to
+     * @param cellSize width and height of one cell in pixels
+     * @param fontSize size of the car names
+     */
+    public BoardCanvas(JamModel jamModel, int cellSize, int fontSize) {
+        this.jamModel = jamModel;
+        this.cellSize = cellSize;
+        this.font = Font.font(null, FontWeight.BOLD, fontSize);
+        this.setOnMouseClicked(event -> {
+            if (this.drawn == null) {
+                return;
+            }
+            int row = (int) (event.getY() / this.cellSize);
+            int col = (int) (event.getX() / this.cellSize);
+            if (row >= 0 && row < this.drawn.getNumRows() && col >= 0 && col < this.drawn.getNumCols()) {
+                try {
+                    this.jamModel.selection(row, col);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Draws a newly loaded puzzle, sizing the canvas to its board and
+     * painting every cell
+     *
+     * @param config    the configuration to draw
+     * @param carColors color of each car of the puzzle
+     */
+    public void load(JamConfiguration config, Color[] carColors) {
+        this.carColors = carColors;
+        this.setWidth(config.getNumCols() * this.cellSize);
+        this.setHeight(config.getNumRows() * this.cellSize);
+        this.drawn = null;
+        this.drawnCells = null;
+        this.show(config);
+    }
+
+    /**
+     * Draws a configuration of the puzzle loaded last, painting only
+     * the cells that are covered by a different car than before
+     *
+     * @param config the configuration to draw
+     */
+    public void show(JamConfiguration config) {
+        int[] cells = config.getCellCars();
+        boolean all = this.drawn == null || this.drawn.getPuzzle() != config.getPuzzle();
+        GraphicsContext graphics = this.getGraphicsContext2D();
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (all || cells[cell] != this.drawnCells[cell]) {
+                this.drawCell(graphics, config, cell / config.getNumCols(), cell % config.getNumCols(), cells[cell]);
+            }
+        }
+        this.drawn = config;
+        this.drawnCells = cells;
+    }
+
+    /**
+     * Paints one cell with the car on it, or as empty
+     *
+     * @param graphics where to draw
+     * @param config   the configuration being drawn
+     * @param row      row of the cell
+     * @param col      column of the cell
+     * @param car      index of the car on the cell, -1 if it is empty
+     */
+    private void drawCell(GraphicsContext graphics, JamConfiguration config, int row, int col, int car) {
+        double x = col * this.cellSize;
+        double y = row * this.cellSize;
+        graphics.setFill(car < 0 ? EMPTY_COLOR : this.carColors[car]);
+        graphics.fillRect(x, y, this.cellSize, this.cellSize);
+        graphics.setStroke(BORDER_COLOR);
+        graphics.strokeRect(x + 0.5, y + 0.5, this.cellSize - 1, this.cellSize - 1);
+
+        graphics.setFill(Color.BLACK);
+        graphics.setFont(this.font);
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.CENTER);
+        String text = car < 0 ? Character.toString(JamConfiguration.EMPTY) : config.getPuzzle().getName(car);
+        graphics.fillText(text, x + this.cellSize / 2.0, y + this.cellSize / 2.0);
+    }
+
+}
@@ -0,0 +1,53 @@
+package jam;
+
+import commonJam.solver.Configuration;
+import commonJam.solver.DistanceLookup;
+import commonJam.solver.Solver;
+
+/**
+ * Distance lookup over the canonical form of a puzzle that answers for
+ * any puzzle with the same canonical form. Each configuration asked
+ * about is moved over to the canonical puzzle first, while best moves
+ * are still picked among the configuration's own neighbors, so hints
+ * come back with the car names of the puzzle being played.
+ *
+ * @author Andrew Photinakis
+ */
+final class CanonicalLookup implements DistanceLookup {
+
+    /**
+     * the table over configurations of the canonical puzzle
+     */
+    private final DistanceLookup table;
+
+    /**
+     * @param table the table over configurations of the canonical puzzle
+     */
+    CanonicalLookup(DistanceLookup table) {
+        this.table = table;
+    }
+
+    /**
+     * @return moves from the config to the nearest solution, UNSOLVABLE or NOT_IN_TABLE
+     */
+    @Override
+    public int distanceOf(Configuration config) {
+        return this.table.distanceOf(((JamConfiguration) config).toCanonical());
+    }
+
+    /**
+     * @return number of configs in the lookup
+     */
+    @Override
+    public int size() {
+        return this.table.size();
+    }
+
+    /**
+     * @return what counts as a single move in this lookup
+     */
+    @Override
+    public Solver.MoveModel getMoveModel() {
+        return this.table.getMoveModel();
+    }
+}
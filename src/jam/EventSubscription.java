@@ -0,0 +1,235 @@
+package jam;
+
+import commonJam.Observer;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * One observer's place on a JamModel's event bus. Events wait in a
+ * bounded queue of their own and are handed to the observer on its
+ * executor, in the order they were made, so a slow observer holds up
+ * only its own queue and never the model or the other observers. When
+ * the queue is full the oldest event waiting that didn't load a puzzle
+ * is dropped, the new one if none did; loads are never dropped for room,
+ * so an observer always learns the puzzle changed. A coalescing
+ * subscription also drops waiting events as soon as a newer one
+ * supersedes them, for observers such as views that only need the
+ * latest board.
+ *
+ * @author Andrew Photinakis
+ */
+public class EventSubscription {
+
+    /**
+     * the model the events come from
+     */
+    private final JamModel model;
+    /**
+     * the observer events are handed to
+     */
+    private final Observer<JamModel, ModelEvent> observer;
+    /**
+     * runs the code that hands waiting events to the observer
+     */
+    private final Executor executor;
+    /**
+     * most events that may wait at once
+     */
+    private final int capacity;
+    /**
+     * whether waiting events are dropped once a newer one supersedes them
+     */
+    private final boolean coalesce;
+    /**
+     * events waiting to be handed over, oldest first. Locked on itself,
+     * along with every field below.
+     */
+    private final ArrayDeque<ModelEvent> queue = new ArrayDeque<>();
+    /**
+     * whether the executor has been given the queue to drain and hasn't finished yet
+     */
+    private boolean draining;
+    /**
+     * whether the observer has stopped listening
+     */
+    private boolean closed;
+    /**
+     * number of events taken off the queue to be handed over
+     */
+    private long delivered;
+    /**
+     * number of events dropped because a newer one superseded them
+     */
+    private long coalesced;
+    /**
+     * number of events dropped because the queue was full
+     */
+    private long dropped;
+
+    /**
+     * @param model    the model the events come from
+     * @param observer the observer events are handed to
+     * @param executor runs the code that hands waiting events to the observer
+     * @param capacity most events that may wait at once
+     * @param coalesce whether waiting events are dropped once a newer one supersedes them
+     */
+    EventSubscription(JamModel model, Observer<JamModel, ModelEvent> observer, Executor executor,
+                      int capacity, boolean coalesce) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("An event queue has to hold at least one event: " + capacity);
+        }
+        this.model = model;
+        this.observer = observer;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * Queues an event for the observer, starting a drain on the executor
+     * unless one is already running
+     *
+     * @param event the event
+     */
+    void offer(ModelEvent event) {
+        synchronized (this.queue) {
+            if (this.closed) {
+                return;
+            }
+            if (this.coalesce) {
+                for (Iterator<ModelEvent> waiting = this.queue.iterator(); waiting.hasNext(); ) {
+                    if (event.supersedes(waiting.next())) {
+                        waiting.remove();
+                        this.coalesced++;
+                    }
+                }
+            }
+            if (this.queue.size() >= this.capacity && !this.makeRoom()
+                    && event.type() != ModelEvent.Type.LOADED) {
+                this.dropped++;
+                return;
+            }
+            this.queue.add(event);
+            if (this.draining) {
+                return;
+            }
+            this.draining = true;
+        }
+        try {
+            this.executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            synchronized (this.queue) {
+                this.draining = false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the oldest waiting event that didn't load a puzzle
+     *
+     * @return false if every waiting event loaded one
+     */
+    private boolean makeRoom() {
+        for (Iterator<ModelEvent> waiting = this.queue.iterator(); waiting.hasNext(); ) {
+            if (waiting.next().type() != ModelEvent.Type.LOADED) {
+                waiting.remove();
+                this.dropped++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hands waiting events to the observer one at a time until the queue
+     * is empty. Events offered while the observer is busy, even by the
+     * observer itself, are handed over by the same drain after it returns.
+     */
+    private void drain() {
+        boolean finished = false;
+        try {
+            while (true) {
+                ModelEvent event;
+                synchronized (this.queue) {
+                    event = this.queue.poll();
+                    if (event == null) {
+                        this.draining = false;
+                        finished = true;
+                        return;
+                    }
+                    this.delivered++;
+                }
+                try {
+                    this.observer.update(this.model, event);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            if (!finished) {
+                synchronized (this.queue) {
+                    this.draining = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops handing events to the observer, dropping any still waiting
+     */
+    public void close() {
+        this.model.unsubscribe(this);
+        synchronized (this.queue) {
+            this.closed = true;
+            this.queue.clear();
+        }
+    }
+
+    /**
+     * @return the observer events are handed to
+     */
+    public Observer<JamModel, ModelEvent> getObserver() {
+        return this.observer;
+    }
+
+    /**
+     * @return number of events waiting to be handed over
+     */
+    public int getPending() {
+        synchronized (this.queue) {
+            return this.queue.size();
+        }
+    }
+
+    /**
+     * @return number of events taken off the queue to be handed over
+     */
+    public long getDelivered() {
+        synchronized (this.queue) {
+            return this.delivered;
+        }
+    }
+
+    /**
+     * @return number of events dropped because a newer one superseded them
+     */
+    public long getCoalesced() {
+        synchronized (this.queue) {
+            return this.coalesced;
+        }
+    }
+
+    /**
+     * @return number of events dropped because the queue was full
+     */
+    public long getDropped() {
+        synchronized (this.queue) {
+            return this.dropped;
+        }
+    }
+
+}
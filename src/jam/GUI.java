@@ -1,15 +1,15 @@
 package jam;
 
 import commonJam.Observer;
-import commonJam.solver.Coordinates;
+import commonJam.solver.SolutionDatabase;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
@@ -18,8 +18,8 @@ import javafx.stage.Stage;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Random;
 
 
@@ -28,7 +28,7 @@ import java.util.Random;
  *
  * @author Andrew Photinakis
  */
-public class GUI extends Application implements Observer<JamModel, String> {
+public class GUI extends Application implements Observer<JamModel, ModelEvent> {
 
     /**
      * The resources' directory is located directly underneath the gui package
@@ -51,33 +51,33 @@ public class GUI extends Application implements Observer<JamModel, String> {
      */
     private Stage stage;
     /**
-     * the tool used to hold the game board
+     * the canvas the game board is drawn on
      */
-    private GridPane gameBoardGridPane;
+    private BoardCanvas board;
     /**
      * hexadecimal for the x car
      */
     public final static String X_CAR_COLOR = "#DF0101";
     /**
-     * button font size for the game board
+     * car name font size for the game board
      */
     public final static int BUTTON_FONT_SIZE = 20;
     /**
-     * the size of the buttons
+     * the size of each cell of the game board
      */
     public final static int ICON_SIZE = 75;
     /**
      * holds the told label which will be used to display messages
      */
     private Label topLabel;
-    /**
-     * hashmap that holds the button name and its color
-     */
-    private HashMap<String, String> buttonColorHash;
     /**
      * holds the game file
      */
     private static String gameFile;
+    /**
+     * holds the solution database file, null if hints should be searched for
+     */
+    private static String databaseFile;
 
     /**
      * Method that creates the model and does the start-up stuff
@@ -88,7 +88,12 @@ public class GUI extends Application implements Observer<JamModel, String> {
     public void init() throws IOException {
         this.initialized = false;
         this.jamModel = new JamModel(gameFile);
-        this.jamModel.addObserver(this);
+        this.jamModel.setNotifier(Platform::runLater);
+        if (databaseFile != null) {
+            JamModel.useSolutionDatabase(SolutionDatabase.open(Path.of(databaseFile)));
+            this.jamModel.setHintMode(JamModel.HintMode.DISTANCE_TABLE);
+        }
+        this.jamModel.subscribe(this, Platform::runLater, JamModel.DEFAULT_EVENT_CAPACITY, true);
     }
 
     /**
@@ -128,9 +133,10 @@ public class GUI extends Application implements Observer<JamModel, String> {
         this.topLabel.setStyle("-fx-text-alignment: CENTER ;");
         this.borderPane.setTop(this.topLabel);
 
+        this.board = new BoardCanvas(this.jamModel, ICON_SIZE, BUTTON_FONT_SIZE);
         this.jamModel.load(gameFile);
-        this.gameBoardGridPane = gameStateLoad();
-        this.borderPane.setCenter(this.gameBoardGridPane);
+        this.gameStateLoad(this.jamModel.getConfig());
+        this.borderPane.setCenter(this.board);
 
         loadButton.setOnAction(actionEvent -> {
             try {
@@ -166,134 +172,59 @@ public class GUI extends Application implements Observer<JamModel, String> {
 
     /**
      * Method is used by whatever calls it needs and the
-     * model needs to changes the UI displayed.
+     * model needs to changes the UI displayed. Runs on the
+     * JavaFX application thread, and only for the latest
+     * of the events the model made while the view was busy.
      *
      * @param jamModel model for the GUI
-     * @param msg      the message that is made when notifyObservers is called
+     * @param event    what happened, with the board it happened to
      */
     @Override
-    public void update(JamModel jamModel, String msg) {
+    public void update(JamModel jamModel, ModelEvent event) {
         if (!this.initialized) {
             return;
         }
 
-        this.topLabel.setText(msg);
-        if (jamModel.getGameState() == JamModel.GameState.LOADING) {
-            this.gameBoardGridPane = gameStateLoad();
-        } else {
-            this.gameBoardGridPane = passOver();
+        this.topLabel.setText(event.message());
+        if (event.type() == ModelEvent.Type.LOADED) {
+            this.gameStateLoad(event.config());
+            this.stage.sizeToScene();
+        } else if (event.type() == ModelEvent.Type.BOARD) {
+            this.passOver(event.config());
         }
-        this.borderPane.setCenter(this.gameBoardGridPane);
-        this.stage.sizeToScene();
-        jamModel.setGameStateONGOING();
-    }
-
-    /**
-     * Passes the board when reset it called. Makes sure nothing is changed
-     * that shouldn't be changed.
-     *
-     * @return call to the completeGridWithX() method which just returns
-     * a finished gridPane game board with X car in it.
-     */
-    public GridPane passOver() {
-        GridPane grid = new GridPane();
-        this.jamModel.getConfig().stringCarTreeMap.keySet().forEach(c -> {
-            Car car = this.jamModel.getConfig().stringCarTreeMap.get(c);
-            boardHelpMaker(grid, car, this.buttonColorHash.get(car.getCarName()));
-        });
-        return completeGridWithX(grid);
     }
 
     /**
-     * Passes in a GridPane and puts the X car on the grid
-     * along with its properties
+     * Passes the board over to the canvas after a move, reset or hint.
+     * Makes sure nothing is changed that shouldn't be changed: the car
+     * colors stay and only the cells that changed are drawn again.
      *
-     * @param grid the unfinished grid
-     * @return finish game board
+     * @param config the configuration to show
      */
-    private GridPane completeGridWithX(GridPane grid) {
-        for (int i = 0; i < this.jamModel.getConfig().getNumRows(); i++) {
-            for (int j = 0; j < this.jamModel.getConfig().getNumRows(); j++) {
-                if (this.jamModel.getConfig().gameBoard[i][j] == JamConfiguration.EMPTY) {
-                    Button xButton = new Button(Character.toString(JamConfiguration.EMPTY));
-                    xButton.setStyle(
-                            "-fx-font-size: " + BUTTON_FONT_SIZE + ";" +
-                                    "-fx-font-weight: bold;" +
-                                    "-fx-text-alignment: CENTER;" +
-                                    "-fx-border-color: black;");
-                    xButton.setMinSize(ICON_SIZE, ICON_SIZE);
-                    xButton.setMaxSize(ICON_SIZE, ICON_SIZE);
-                    grid.add(xButton, j, i);
-                    int finalI1 = i;
-                    int finalJ1 = j;
-                    xButton.setOnAction(e -> {
-                        try {
-                            this.jamModel.selection(finalI1, finalJ1);
-                        } catch (IOException ex) {
-                            ex.printStackTrace();
-                        }
-                    });
-                }
-            }
-        }
-        grid.setAlignment(Pos.CENTER);
-        return grid;
+    public void passOver(JamConfiguration config) {
+        this.board.show(config);
     }
 
     /**
      * Called when loading a new game file. Reason being because it
      * chooses all new colors for the cars, in which we don't
-     * need to happen when a car is selected per se.
+     * need to happen when a car is selected per se. The whole board
+     * is drawn again, sized to the new puzzle.
      *
-     * @return GridPane that represents the finished game board
+     * @param config the configuration of the puzzle loaded
      */
-    public GridPane gameStateLoad() {
-        GridPane grid = new GridPane();
-        this.buttonColorHash = new HashMap<>();
-        for (String c : this.jamModel.getConfig().stringCarTreeMap.keySet()) {
-            Car car = this.jamModel.getConfig().stringCarTreeMap.get(c);
-            if (car.getCarName().equals("X")) {
-                this.buttonColorHash.put(car.getCarName(), X_CAR_COLOR);
-                boardHelpMaker(grid, car, X_CAR_COLOR);
+    public void gameStateLoad(JamConfiguration config) {
+        JamPuzzle puzzle = config.getPuzzle();
+        javafx.scene.paint.Color[] carColors = new javafx.scene.paint.Color[puzzle.getNumCars()];
+        for (int car = 0; car < puzzle.getNumCars(); car++) {
+            if (car == puzzle.getGoalIndex()) {
+                carColors[car] = javafx.scene.paint.Color.web(X_CAR_COLOR);
             } else {
                 Color rand = getNewCarColor();
-                String hex = "#" + Integer.toHexString(rand.getRGB()).substring(2);
-                this.buttonColorHash.put(car.getCarName(), hex);
-                boardHelpMaker(grid, car, hex);
+                carColors[car] = javafx.scene.paint.Color.rgb(rand.getRed(), rand.getGreen(), rand.getBlue());
             }
         }
-        return completeGridWithX(grid);
-    }
-
-    /**
-     * Takes in an unfinished board, car, and color.
-     * Creates all the buttons for the car and places them
-     * on the board
-     *
-     * @param grid  represents the game board
-     * @param car   car to be taken care of
-     * @param color the color the car will have
-     */
-    private void boardHelpMaker(GridPane grid, Car car, String color) {
-        for (Coordinates carCord : this.jamModel.getConfig().getAllCarCoordinates(car)) {
-            Button button = new Button(car.getCarName());
-            button.setStyle(
-                    "-fx-font-size: " + BUTTON_FONT_SIZE + ";" +
-                            "-fx-background-color: " + color + ";" +
-                            "-fx-font-weight: bold;" +
-                            "-fx-text-alignment: CENTER;" +
-                            "-fx-border-color: black;");
-            button.setMinSize(ICON_SIZE, ICON_SIZE);
-            button.setMaxSize(ICON_SIZE, ICON_SIZE);
-            grid.add(button, carCord.getCol(), carCord.getRow());
-            button.setOnAction(e -> {
-                try {
-                    this.jamModel.selection(carCord.getRow(), carCord.getCol());
-                } catch (IOException ex) {
-                    ex.printStackTrace();
-                }
-            });
-        }
+        this.board.load(config, carColors);
     }
 
     /**
@@ -313,12 +244,13 @@ public class GUI extends Application implements Observer<JamModel, String> {
 
     /**
      * Handles the action when the hint button is pressed
-     * Calls to the models hint function.
+     * Calls to the models hint function, which searches in the
+     * background and updates the board once the hint is found.
      *
      * @throws IOException thrown if there is a IO problem
      */
     private void hintButtonAction() throws IOException {
-        this.jamModel.hint();
+        this.jamModel.hintAsync();
     }
 
     /**
@@ -351,15 +283,17 @@ public class GUI extends Application implements Observer<JamModel, String> {
     }
 
     /**
-     * Main method that takes in a file name for the args.
+     * Main method that takes in a file name for the args,
+     * optionally followed by a solution database to take hints from.
      * if the file is not there, the program terminates
      * and the Exception method is printed
      *
-     * @param args filename passed in
+     * @param args filename passed in, then the database file if any
      */
     public static void main(String[] args) {
         try {
             gameFile = args[0];
+            databaseFile = args.length > 1 ? args[1] : null;
             Application.launch(args);
         } catch (Exception ignored) {
             System.out.println(ignored.getMessage());
@@ -1,35 +1,129 @@
 package jam;
 
 import commonJam.solver.Configuration;
+import commonJam.solver.DistanceLookup;
+import commonJam.solver.DistanceTable;
+import commonJam.solver.SolutionDatabase;
 import commonJam.solver.Solver;
 import java.io.IOException;
-import java.util.Collection;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Jam class that takes in a file and creates the starting config.
  * Then it solves it and prints the steps from start to finish
- * if the solution exists
+ * if the solution exists.
+ * <p>
+ * It can also build a solution database of many puzzles with
+ * --build-db, answer a puzzle from one with --db, convert game files
+ * into a puzzle pack with --pack, solve a whole corpus of puzzles
+ * with --batch, mine the hardest puzzles of a board with --enumerate,
+ * and put simulated players on the game model with --load.
  *
  * @author Andrew Photinakis
  */
 public class Jam {
-    public static void main(String[] args) throws IOException {
-        if (args.length != 1) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length >= 1 && args[0].equals("--batch")) {
+            JamBatch.main(Arrays.copyOfRange(args, 1, args.length));
+        } else if (args.length >= 1 && args[0].equals("--enumerate")) {
+            JamEnumerator.main(Arrays.copyOfRange(args, 1, args.length));
+        } else if (args.length >= 1 && args[0].equals("--load")) {
+            JamLoad.main(Arrays.copyOfRange(args, 1, args.length));
+        } else if (args.length >= 3 && args[0].equals("--build-db")) {
+            buildDatabase(args);
+        } else if (args.length == 3 && args[0].equals("--db")) {
+            answerFromDatabase(args[1], args[2]);
+        } else if (args.length >= 3 && args[0].equals("--pack")) {
+            List<Path> games = JamBatch.findFiles(Arrays.asList(args).subList(2, args.length));
+            PuzzlePack.convert(Path.of(args[1]), games);
+            System.out.println("Wrote " + games.size() + " puzzles to " + args[1]);
+        } else if (args.length != 1) {
             System.out.println("Usage: java Jam filename");
+            System.out.println("       java Jam --build-db database filename...");
+            System.out.println("       java Jam --db database filename");
+            System.out.println("       java Jam --pack pack path...");
+            System.out.println("       java Jam --batch [options] path...");
+            System.out.println("       java Jam --enumerate rows cols inventory outDir [options]");
+            System.out.println("       java Jam --load [options] path...");
         } else {
 
             String filename = args[0];
             System.out.println("File: " + filename);
             JamConfiguration jamConfig = new JamConfiguration(filename);
-            System.out.println(jamConfig);
 
             Solver solver = new Solver();
-            Collection<Configuration> configurationCollection = solver.solve(jamConfig);
-            List<Configuration> configurationArrayList = configurationCollection.stream().toList();
-
+            List<Configuration> path = solver.solve(jamConfig);
+            if (path.isEmpty()) {
+                System.out.println(jamConfig);
+                System.out.println("No solution");
+                return;
+            }
+            System.out.println("Moves: " + (path.size() - 1));
+            for (int step = 0; step < path.size(); step++) {
+                System.out.println("Step " + step + ":");
+                System.out.println(path.get(step));
+            }
         }
     }
-}
 
+    /**
+     * Builds the slide distance table of every puzzle and writes them to a database.
+     * Tables are built and keyed by canonical puzzle, so puzzles that only
+     * differ by the names of their blocker cars are stored once.
+     *
+     * @param args --build-db, the database file, then the puzzle files
+     * @throws IOException if a puzzle can't be read or the database can't be written
+     */
+    private static void buildDatabase(String[] args) throws IOException {
+        List<SolutionDatabase.Entry> entries = new ArrayList<>();
+        Set<JamPuzzle> built = new HashSet<>();
+        for (int i = 2; i < args.length; i++) {
+            JamPuzzle puzzle = new JamPuzzle(args[i]).canonical();
+            if (!built.add(puzzle)) {
+                System.out.println(args[i] + ": same as an earlier puzzle");
+                continue;
+            }
+            DistanceTable table = DistanceTable.build(new JamConfiguration(puzzle), Solver.MoveModel.SLIDE);
+            System.out.println(args[i] + ": " + table.size() + " states");
+            entries.add(new SolutionDatabase.Entry(puzzle.getFingerprint(), table));
+        }
+        SolutionDatabase.write(Path.of(args[1]), entries);
+        System.out.println("Wrote " + entries.size() + " tables to " + args[1]);
+    }
 
+    /**
+     * Prints the steps from start to finish of a puzzle, following its table in the database
+     *
+     * @param databaseFile the database file
+     * @param filename     the puzzle file
+     * @throws IOException if the database or puzzle can't be read
+     */
+    private static void answerFromDatabase(String databaseFile, String filename) throws IOException {
+        SolutionDatabase database = SolutionDatabase.open(Path.of(databaseFile));
+        JamPuzzle puzzle = new JamPuzzle(filename);
+        DistanceLookup found = database.find(puzzle.canonical().getFingerprint(), Solver.MoveModel.SLIDE);
+        System.out.println("File: " + filename);
+        if (found == null) {
+            System.out.println("Not in " + databaseFile);
+            return;
+        }
+        DistanceLookup table = new CanonicalLookup(found);
+        Configuration config = new JamConfiguration(puzzle);
+        int distance = table.distanceOf(config);
+        if (distance == DistanceLookup.UNSOLVABLE) {
+            System.out.println("No solution");
+            return;
+        }
+        System.out.println("Moves: " + distance);
+        for (int step = 0; config != null; step++) {
+            System.out.println("Step " + step + ":");
+            System.out.println(config);
+            config = table.bestMove(config);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package jam;
+
+import commonJam.solver.Configuration;
+import commonJam.solver.Solver;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Solves a whole corpus of puzzle files in one JVM. The files are given
+ * as any mix of files, puzzle packs, directories (searched all the way
+ * down) and glob patterns, solved concurrently on a fixed number of workers, and a
+ * report line is printed for each one as soon as it is solved, so the
+ * report comes out in the order the solves finish.
+ * <p>
+ * Each line holds the optimal number of moves, the configs expanded to
+ * find them, the solve time and the heap in use as the solve finished.
+ * The heap is the whole JVM's since the solves share one.
+ *
+ * @author Andrew Photinakis
+ */
+public class JamBatch {
+
+    /**
+     * Formats the report can be printed in
+     */
+    public enum Format {
+        /**
+         * comma separated values with a header line
+         */
+        CSV,
+        /**
+         * one JSON object per line
+         */
+        JSON
+    }
+
+    /**
+     * What came of solving one puzzle file
+     *
+     * @param file      the puzzle file, or its pack followed by its name
+     * @param solvable  true if the puzzle has a solution
+     * @param moves     optimal number of moves, 0 if there is no solution
+     * @param expanded  configs the solver expanded
+     * @param millis    wall time of the solve
+     * @param heapBytes heap the JVM had in use as the solve finished
+     * @param error     why the file couldn't be solved, null if it was
+     */
+    public record Result(Path file, boolean solvable, int moves, int expanded, double millis,
+                         long heapBytes, String error) {
+    }
+
+    /**
+     * Reads one puzzle to solve
+     */
+    private interface PuzzleSource {
+        /**
+         * @return the puzzle
+         * @throws IOException if it can't be read
+         */
+        JamPuzzle read() throws IOException;
+    }
+
+    /**
+     * what counts as a single move
+     */
+    private final Solver.MoveModel moveModel;
+    /**
+     * how each puzzle is searched
+     */
+    private final Solver.Strategy strategy;
+    /**
+     * number of puzzles solved at once
+     */
+    private final int threads;
+    /**
+     * how the report is printed
+     */
+    private final Format format;
+
+    /**
+     * @param moveModel what counts as a single move
+     * @param strategy  how each puzzle is searched
+     * @param threads   number of puzzles solved at once
+     * @param format    how the report is printed
+     */
+    public JamBatch(Solver.MoveModel moveModel, Solver.Strategy strategy, int threads, Format format) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, was " + threads);
+        }
+        this.moveModel = moveModel;
+        this.strategy = strategy;
+        this.threads = threads;
+        this.format = format;
+    }
+
+    /**
+     * Runs a batch from the command line. Options come first:
+     * --threads n, --format csv|json, --model SLIDE|SINGLE_STEP and
+     * --strategy name, then the files, directories and globs to solve.
+     *
+     * @param args the options and paths
+     * @throws IOException if a directory can't be searched
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Solver.MoveModel moveModel = Solver.MoveModel.SINGLE_STEP;
+        Solver.Strategy strategy = Solver.Strategy.BREADTH_FIRST;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Format format = Format.CSV;
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && i + 1 == args.length) {
+                /** an option with no value after it */
+                patterns.clear();
+                break;
+            }
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--format" -> format = Format.valueOf(args[++i].toUpperCase());
+                case "--model" -> moveModel = Solver.MoveModel.valueOf(args[++i].toUpperCase());
+                case "--strategy" -> strategy = Solver.Strategy.valueOf(args[++i].toUpperCase());
+                default -> patterns.add(args[i]);
+            }
+        }
+        if (patterns.isEmpty()) {
+            System.out.println("Usage: java Jam --batch [--threads n] [--format csv|json] "
+                    + "[--model SLIDE|SINGLE_STEP] [--strategy name] path...");
+            System.out.println("       strategies are BREADTH_FIRST, BIDIRECTIONAL, A_STAR, IDA_STAR and "
+                    + "PARALLEL_BREADTH_FIRST; use A_STAR rather than IDA_STAR if a puzzle may have no solution");
+            return;
+        }
+        new JamBatch(moveModel, strategy, threads, format).run(findFiles(patterns), System.out);
+    }
+
+    /**
+     * Solves every file, printing a report line as each solve finishes.
+     * A puzzle pack is streamed puzzle by puzzle out of its mapped file,
+     * each one reported under the pack's path followed by its name.
+     *
+     * @param files the puzzle files and packs
+     * @param out   where the report goes
+     * @return the results in the order they finished
+     */
+    public List<Result> run(List<Path> files, PrintStream out) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        CompletionService<Result> completions = new ExecutorCompletionService<>(pool);
+        int submitted = 0;
+        for (Path file : files) {
+            if (PuzzlePack.isPack(file)) {
+                try {
+                    PuzzlePack pack = PuzzlePack.open(file);
+                    for (int i = 0; i < pack.size(); i++) {
+                        int index = i;
+                        completions.submit(() -> this.solve(file.resolve(pack.getName(index)), () -> pack.get(index)));
+                    }
+                    submitted += pack.size();
+                } catch (IOException e) {
+                    completions.submit(() -> new Result(file, false, 0, 0, 0, heapBytes(), String.valueOf(e)));
+                    submitted++;
+                }
+            } else {
+                completions.submit(() -> this.solve(file, () -> new JamPuzzle(file.toString())));
+                submitted++;
+            }
+        }
+        pool.shutdown();
+
+        if (this.format == Format.CSV) {
+            out.println("file,solvable,moves,expanded,millis,heap_bytes,error");
+        }
+        List<Result> results = new ArrayList<>(submitted);
+        try {
+            for (int i = 0; i < submitted; i++) {
+                Result result = completions.take().get();
+                results.add(result);
+                out.println(this.format == Format.CSV ? toCsv(result) : toJson(result));
+                out.flush();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Solves one puzzle. A puzzle that can't be read or solved is
+     * reported with its error rather than stopping the batch.
+     *
+     * @param file   what the puzzle is reported as
+     * @param source reads the puzzle
+     * @return what came of solving it
+     */
+    private Result solve(Path file, PuzzleSource source) {
+        try {
+            JamConfiguration start = new JamConfiguration(source.read());
+            Solver solver = new Solver(this.moveModel, this.strategy);
+            long begin = System.nanoTime();
+            List<Configuration> path = solver.solve(start);
+            double millis = (System.nanoTime() - begin) / 1e6;
+            return new Result(file, !path.isEmpty(), Math.max(path.size() - 1, 0), solver.getExpanded(),
+                    millis, heapBytes(), null);
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            return new Result(file, false, 0, 0, 0, heapBytes(), String.valueOf(e));
+        }
+    }
+
+    /**
+     * Expands files, directories and glob patterns into a sorted list of puzzle files
+     *
+     * @param patterns the files, directories and globs
+     * @return every regular file they name
+     * @throws IOException if a directory can't be searched
+     */
+    public static List<Path> findFiles(List<String> patterns) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String pattern : patterns) {
+            int wildcard = firstWildcard(pattern);
+            if (wildcard < 0) {
+                Path path = Path.of(pattern);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> walk = Files.walk(path)) {
+                        walk.filter(Files::isRegularFile).sorted().forEach(files::add);
+                    }
+                } else {
+                    files.add(path);
+                }
+            } else {
+                /** searches from the last directory before the first wildcard */
+                int slash = pattern.lastIndexOf('/', wildcard);
+                Path base = Path.of(slash < 0 ? "." : pattern.substring(0, slash + 1));
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher(
+                        "glob:" + (slash < 0 ? pattern : pattern.substring(slash + 1)));
+                try (Stream<Path> walk = Files.walk(base)) {
+                    walk.filter(Files::isRegularFile)
+                            .filter(path -> matcher.matches(base.relativize(path)))
+                            .sorted()
+                            .forEach(files::add);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return index of the first glob wildcard in the pattern, -1 if it has none
+     */
+    private static int firstWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("*?[{".indexOf(pattern.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return heap the JVM has in use now
+     */
+    private static long heapBytes() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * @return the result as a CSV line
+     */
+    private static String toCsv(Result result) {
+        String error = result.error() == null ? "" : "\"" + result.error().replace("\"", "\"\"") + "\"";
+        String file = result.file().toString();
+        if (file.contains(",") || file.contains("\"")) {
+            file = "\"" + file.replace("\"", "\"\"") + "\"";
+        }
+        return String.format(Locale.ROOT, "%s,%b,%d,%d,%.3f,%d,%s", file, result.solvable(), result.moves(),
+                result.expanded(), result.millis(), result.heapBytes(), error);
+    }
+
+    /**
+     * @return the result as a JSON object on one line
+     */
+    private static String toJson(Result result) {
+        return String.format(Locale.ROOT, "{\"file\":%s,\"solvable\":%b,\"moves\":%d,\"expanded\":%d,\"millis\":%.3f,"
+                        + "\"heap_bytes\":%d,\"error\":%s}", jsonString(result.file().toString()),
+                result.solvable(), result.moves(), result.expanded(), result.millis(), result.heapBytes(),
+                result.error() == null ? "null" : jsonString(result.error()));
+    }
+
+    /**
+     * @return the text as a quoted JSON string
+     */
+    private static String jsonString(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+}
@@ -2,243 +2,394 @@ package jam;
 
 import commonJam.solver.Configuration;
 import commonJam.solver.Coordinates;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import commonJam.solver.HeuristicConfiguration;
+import commonJam.solver.NeighborSink;
+import commonJam.solver.PackedConfiguration;
+import commonJam.solver.Solver;
 import java.io.IOException;
 import java.util.*;
 
 /**
  * Class that creates JamConfiguration that are used for the
- * Strings puzzle class to implement
+ * Strings puzzle class to implement.
+ * A configuration only stores where each car sits in its lane,
+ * packed into a long by the shared {@link JamPuzzle}, so the
+ * solver can keep huge numbers of them around. The board and
+ * the cars are views worked out from those positions.
+ * Configurations never change once made, and neither does the
+ * puzzle, so any number of threads can share them.
  *
  * @author Andrew Photinakis
  */
-public class JamConfiguration implements Configuration {
+public class JamConfiguration implements HeuristicConfiguration, PackedConfiguration {
 
     /**
-     * holds car name and its attributes
+     * char for filing empty board
      */
-    public TreeMap<String, Car> stringCarTreeMap;
+    public static final char EMPTY = '.';
     /**
-     * holds the game board
+     * placements getGoals may try for each goal it is allowed to list before giving up
      */
-    public char[][] gameBoard;
+    private static final int GOAL_TRIES = 16;
     /**
-     * holds game board number of rows
+     * the puzzle this configuration belongs to
      */
-    public static int numRows;
+    private final JamPuzzle puzzle;
     /**
-     * holds game board number of columns
+     * packed car positions
      */
-    public static int numCols;
+    private final long packed;
     /**
-     * char for filing empty board
+     * packed car positions that did not fit in the first word followed by
+     * the Zobrist hash of every car position, null for normal sized boards
      */
-    public static final char EMPTY = '.';
+    private final long[] overflow;
+
     /**
-     * name of car
+     * JamConfig constructor that creates the configuration.
+     * Means it reads the puzzle out of the file and places
+     * every car at its starting position
+     *
+     * @param filename game file that is passed in
+     * @throws IOException for a potential FileNotFoundException
      */
-    private String carName;
+    public JamConfiguration(String filename) throws IOException {
+        this(new JamPuzzle(filename));
+    }
+
     /**
-     * starting row of car
+     * Creates the starting configuration of a puzzle that has already been read
+     *
+     * @param puzzle the puzzle to start
      */
-    private int startingRow;
+    public JamConfiguration(JamPuzzle puzzle) {
+        this.puzzle = puzzle;
+        long[] start = puzzle.getStartWords();
+        this.packed = start[0];
+        this.overflow = start.length == 1 ? null : withHash(start, puzzle.getStartZobrist());
+    }
+
     /**
-     * starting col of car
+     * Creates the configuration with the given packed car positions
+     *
+     * @param puzzle   the puzzle it belongs to
+     * @param packed   packed car positions
+     * @param overflow packed car positions past the first word and their hash, null if they all fit
      */
-    private int startingCol;
+    private JamConfiguration(JamPuzzle puzzle, long packed, long[] overflow) {
+        this.puzzle = puzzle;
+        this.packed = packed;
+        this.overflow = overflow;
+    }
+
     /**
-     * ending row of car
+     * Creates the configuration that is the other one with a single car moved
+     *
+     * @param other    the configuration to move the car in
+     * @param car      index of the car to move
+     * @param position new first row or column of the car
      */
-    private int endingRow;
+    private JamConfiguration(JamConfiguration other, int car, int position) {
+        this.puzzle = other.puzzle;
+        if (other.overflow == null) {
+            this.packed = this.puzzle.repack(other.packed, car, position);
+            this.overflow = null;
+        } else {
+            /** wide boards also carry a Zobrist hash, updated by swapping the moved car's keys */
+            int word = this.puzzle.getWord(car);
+            long[] words = other.overflow.clone();
+            if (word == 0) {
+                this.packed = this.puzzle.repack(other.packed, car, position);
+            } else {
+                this.packed = other.packed;
+                words[word - 1] = this.puzzle.repack(words[word - 1], car, position);
+            }
+            words[words.length - 1] ^= this.puzzle.zobristKey(car, other.getPosition(car))
+                    ^ this.puzzle.zobristKey(car, position);
+            this.overflow = words;
+        }
+    }
+
     /**
-     * ending col of car
+     * Copies the packed words past the first one and puts the Zobrist hash after them
+     *
+     * @param words the packed words of a wide board
+     * @param hash  Zobrist hash of the car positions
+     * @return the overflow words with the hash at the end
      */
-    private int endingCol;
+    private static long[] withHash(long[] words, long hash) {
+        long[] overflow = Arrays.copyOfRange(words, 1, words.length + 1);
+        overflow[overflow.length - 1] = hash;
+        return overflow;
+    }
 
     /**
-     * JamConfig constructor that creates the configuration.
-     * Means it creates the board by reading the file by line,
-     * creates the cars as necessary and stores them in a tree map,
-     * and plots the cars on the game board for play
+     * Makes the configuration with a single car moved along its lane
      *
-     * @param filename game file that is passed in
-     * @throws IOException for a potential FileNotFoundException
+     * @param car      index of the car to move
+     * @param position new first row or column of the car
+     * @return the configuration with the car moved
+     * @throws IllegalArgumentException if the car would leave the board
      */
-    public JamConfiguration(String filename) throws IOException {
-
-        BufferedReader br = new BufferedReader(new FileReader(filename));
-        String[] fields = br.readLine().split(" ");
-        numRows = Integer.parseInt(fields[0]);
-        numCols = Integer.parseInt(fields[1]);
-        this.gameBoard = new char[numRows][numCols];
-
-        String[] cars = br.readLine().split(" ");
-        int numCars = Integer.parseInt(cars[0]);
-
-        /** Creates the tree map as well as each car in the file and puts it in the tree map */
-        this.stringCarTreeMap = new TreeMap<>();
-        String line;
-        String[] lineSplited;
-        while ((line = br.readLine()) != null) {
-            lineSplited = line.split(" ");
-            this.carName = lineSplited[0];
-            this.startingRow = Integer.parseInt(lineSplited[1]);
-            this.startingCol = Integer.parseInt(lineSplited[2]);
-            this.endingRow = Integer.parseInt(lineSplited[3]);
-            this.endingCol = Integer.parseInt(lineSplited[4]);
-            Car car = new Car(this.carName, this.startingRow, this.startingCol,
-                    this.endingRow, this.endingCol);
-            this.stringCarTreeMap.put(this.carName, car);
+    public JamConfiguration moveCar(int car, int position) {
+        if (position < 0 || position > this.puzzle.getMaxPosition(car)) {
+            throw new IllegalArgumentException("Car " + this.puzzle.getName(car) + " can't be at " + position);
         }
+        return new JamConfiguration(this, car, position);
+    }
 
-        /** initially fills the game board with empty dots */
-        for (int row = 0; row < numRows; row++) {
-            for (int col = 0; col < numCols; col++) {
-                this.gameBoard[row][col] = EMPTY;
-            }
-        }
+    /**
+     * Gets the neighbors of the current Jam Configuration
+     *
+     * @return Collection of configuration neighbors that are generated
+     */
+    @Override
+    public Collection<Configuration> getNeighbors() {
+        List<Configuration> neighbors = new ArrayList<>();
+        this.forEachNeighbor(neighbors::add);
+        return neighbors;
+    }
 
-        /** plots each car on the game board respective to its starting and ending values */
-        for (String currString : this.stringCarTreeMap.keySet()) {
-            Car currCar = this.stringCarTreeMap.get(currString);
-            int startingRow = currCar.getStartingRow();
-            int startingCol = currCar.getStartingCol();
-            int endingRow = currCar.getEndingRow();
-            int endingCol = currCar.getEndingCol();
-
-            if (currCar.movesSideways()) {
-                for (int c = startingCol; c <= endingCol; c++) {
-                    this.gameBoard[startingRow][c] = currString.charAt(0);
+    /**
+     * Hands each configuration that is one car shift away to the sink.
+     * Free cells are looked up in an occupancy bitmask built once for this
+     * configuration, so the only objects made per move are the neighbors.
+     *
+     * @param sink receives each neighbor
+     */
+    @Override
+    public void forEachNeighbor(NeighborSink sink) {
+        long[] occupied = this.occupancy();
+        int numCols = this.getNumCols();
+
+        for (int car = 0; car < this.puzzle.getNumCars(); car++) {
+            int lane = this.puzzle.getLane(car);
+            int first = this.getPosition(car);
+            int last = first + this.puzzle.getLength(car) - 1;
+
+            if (this.puzzle.movesSideways(car)) {
+                int rowStart = lane * numCols;
+                if (last < numCols - 1 && isFree(occupied, rowStart + last + 1)) {
+                    sink.accept(new JamConfiguration(this, car, first + 1));
+                }
+                if (first > 0 && isFree(occupied, rowStart + first - 1)) {
+                    sink.accept(new JamConfiguration(this, car, first - 1));
                 }
             } else {
-                for (int r = startingRow; r <= endingRow; r++) {
-                    this.gameBoard[r][startingCol] = currString.charAt(0);
+                if (last < this.getNumRows() - 1 && isFree(occupied, (last + 1) * numCols + lane)) {
+                    sink.accept(new JamConfiguration(this, car, first + 1));
+                }
+                if (first > 0 && isFree(occupied, (first - 1) * numCols + lane)) {
+                    sink.accept(new JamConfiguration(this, car, first - 1));
                 }
             }
         }
     }
 
     /**
-     * JamConfig copy constructor that takes in the other JamConfig as well as the car
-     * and an ArrayList of the updated coordinates for that car
+     * Hands each configuration that is one whole slide away to the sink,
+     * the way a player moves a car any number of free cells at once.
+     * Slides forward come first, nearest first, then slides backward.
      *
-     * @param other              the other Jam Configuration that is passed in
-     * @param car                the car that's position is to be changed on the game board
-     * @param updatedCoordinates the new coordinates that represent the new positions
+     * @param sink receives each neighbor
      */
-    public JamConfiguration(JamConfiguration other, Car car, ArrayList<Coordinates> updatedCoordinates) {
-        this.gameBoard = new char[numRows][numCols];
-        this.stringCarTreeMap = other.stringCarTreeMap;
+    @Override
+    public void forEachSlideNeighbor(NeighborSink sink) {
+        long[] occupied = this.occupancy();
+        int numCols = this.getNumCols();
+
+        for (int car = 0; car < this.puzzle.getNumCars(); car++) {
+            int lane = this.puzzle.getLane(car);
+            int first = this.getPosition(car);
+            int length = this.puzzle.getLength(car);
+            int max = this.puzzle.getMaxPosition(car);
+            boolean sideways = this.puzzle.movesSideways(car);
+
+            for (int p = first + 1; p <= max; p++) {
+                int cell = p + length - 1;
+                if (!isFree(occupied, sideways ? lane * numCols + cell : cell * numCols + lane)) {
+                    break;
+                }
+                sink.accept(new JamConfiguration(this, car, p));
+            }
+            for (int p = first - 1; p >= 0; p--) {
+                if (!isFree(occupied, sideways ? lane * numCols + p : p * numCols + lane)) {
+                    break;
+                }
+                sink.accept(new JamConfiguration(this, car, p));
+            }
+        }
+    }
 
-        /** copies the old game board onto the new one before changes are made */
-        for (int r = 0; r < numRows; r++) {
-            if (numCols >= 0) System.arraycopy(other.gameBoard[r], 0, this.gameBoard[r], 0, numCols);
+    /**
+     * Lists every way the cars can be placed with the X car at the right
+     * edge that this configuration could still reach as far as the lanes
+     * go: each car stays in its own lane, and cars sharing a lane can't
+     * pass each other, so they keep the order they have now. Cars only
+     * ever slide back and forth in their lane, so every move can be
+     * undone and a search can run backwards from these.
+     *
+     * @param limit most goals worth listing
+     * @return all goal configurations, or an empty list if there are more
+     * than the limit or finding them takes too many tries
+     */
+    @Override
+    public Collection<Configuration> getGoals(int limit) {
+        int goal = this.puzzle.getGoalIndex();
+        JamConfiguration placed = new JamConfiguration(this, goal, this.puzzle.getMaxPosition(goal));
+        long[] occupied = new long[(this.getNumRows() * this.getNumCols() + Long.SIZE - 1) / Long.SIZE];
+        this.markCar(occupied, goal, this.puzzle.getMaxPosition(goal));
+
+        List<Configuration> goals = new ArrayList<>();
+        long[] tries = {(long) limit * GOAL_TRIES};
+        if (!this.placeGoalCars(placed, 0, occupied, goals, limit, tries)) {
+            goals.clear();
         }
+        return goals;
+    }
 
-        /** goes through the new game board and any spot that holds the car is now empty */
-        for (int i = 0; i < numRows; i++) {
-            for (int j = 0; j < numCols; j++) {
-                if (this.gameBoard[i][j] == car.getCarName().charAt(0)) {
-                    this.gameBoard[i][j] = EMPTY;
+    /**
+     * Tries every free position for the cars from this index on, adding
+     * a goal configuration each time all of them have been placed
+     *
+     * @param placed   configuration with the earlier cars placed
+     * @param car      index of the next car to place
+     * @param occupied cells covered by the cars placed so far
+     * @param goals    the goals found so far
+     * @param limit    most goals worth listing
+     * @param tries    placements left to try before giving up
+     * @return false once there are more goals than the limit or no tries are left
+     */
+    private boolean placeGoalCars(JamConfiguration placed, int car, long[] occupied, List<Configuration> goals,
+                                  int limit, long[] tries) {
+        if (--tries[0] < 0) {
+            return false;
+        }
+        if (car == this.puzzle.getGoalIndex()) {
+            car++;
+        }
+        if (car == this.puzzle.getNumCars()) {
+            goals.add(placed);
+            return goals.size() <= limit;
+        }
+        for (int p = 0; p <= this.puzzle.getMaxPosition(car); p++) {
+            if (this.fits(occupied, car, p) && this.keepsOrder(placed, car, p)) {
+                this.markCar(occupied, car, p);
+                boolean more = this.placeGoalCars(new JamConfiguration(placed, car, p), car + 1, occupied, goals,
+                        limit, tries);
+                this.markCar(occupied, car, p);
+                if (!more) {
+                    return false;
                 }
             }
         }
+        return true;
+    }
 
-        /**
-         * gets the first and last coords of the new car and replaces its object
-         * in the tree map
-         */
-        Coordinates first = updatedCoordinates.get(0);
-        Coordinates last = updatedCoordinates.get(updatedCoordinates.size() - 1);
-        int startingRow = first.getRow();
-        int startingCol = first.getCol();
-        int endingRow = last.getRow();
-        int endingCol = last.getCol();
-        this.stringCarTreeMap.replace(car.getCarName(), new Car(car.getCarName(), startingRow, startingCol
-                , endingRow, endingCol));
+    /**
+     * @param placed   configuration with the goal car and the cars before this one placed
+     * @param car      index of the car
+     * @param position where the car would go
+     * @return true if the car would keep its order along its lane with the cars already placed there
+     */
+    private boolean keepsOrder(JamConfiguration placed, int car, int position) {
+        int goal = this.puzzle.getGoalIndex();
+        for (int other = 0; other < this.puzzle.getNumCars(); other++) {
+            if ((other < car || other == goal) && other != car
+                    && this.puzzle.movesSideways(other) == this.puzzle.movesSideways(car)
+                    && this.puzzle.getLane(other) == this.puzzle.getLane(car)
+                    && (position < placed.getPosition(other)) != (this.getPosition(car) < this.getPosition(other))) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        /** plots the new car along with its new coordinates on the game board */
-        updatedCoordinates.forEach(currCord -> {
-            this.gameBoard[currCord.getRow()][currCord.getCol()] = car.getCarName().charAt(0);
-        });
+    /**
+     * @return true if the car would only cover free cells at that position
+     */
+    private boolean fits(long[] occupied, int car, int position) {
+        for (int i = position; i < position + this.puzzle.getLength(car); i++) {
+            if (!isFree(occupied, this.cellAt(car, i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * Gets the neighbors of the current Jam Configuration
+     * Flips the occupancy bits of every cell the car covers at that position
+     */
+    private void markCar(long[] occupied, int car, int position) {
+        for (int i = position; i < position + this.puzzle.getLength(car); i++) {
+            int cell = this.cellAt(car, i);
+            occupied[cell >>> 6] ^= 1L << cell;
+        }
+    }
+
+    /**
+     * @return bit index of the cell at that row or column of the car's lane
+     */
+    private int cellAt(int car, int along) {
+        int lane = this.puzzle.getLane(car);
+        return this.puzzle.movesSideways(car) ? lane * this.getNumCols() + along : along * this.getNumCols() + lane;
+    }
+
+    /**
+     * Marks every cell covered by a car, one bit per cell numbered row by row
      *
-     * @return Collection of configuration neighbors that are generated
+     * @return the occupancy bitmask of the board
      */
-    @Override
-    public Collection<Configuration> getNeighbors() {
-        List<Configuration> neighbors = new LinkedList<>();
-
-        for (String currentStringKeySet : this.stringCarTreeMap.keySet()) {
-            Car currentCar = this.stringCarTreeMap.get(currentStringKeySet);
-            ArrayList<Coordinates> currCarCordsArrayList = this.getAllCarCoordinates(currentCar);
-
-            if (currentCar.movesSideways()) {
-                if (currCarCordsArrayList.get(currCarCordsArrayList.size() - 1).getCol() < numCols - 1) {
-                    if (this.gameBoard[currentCar.getStartingRow()]
-                            [currCarCordsArrayList.get(currCarCordsArrayList.size() - 1).getCol() + 1] == EMPTY) {
-                        ArrayList<Coordinates> newCordsToPassIn = new ArrayList<>();
-                        currCarCordsArrayList.forEach(currCord -> {
-                            newCordsToPassIn.add(new Coordinates(currCord.getRow(), currCord.getCol() + 1));
-                        });
-                        neighbors.add(new JamConfiguration(this, currentCar, newCordsToPassIn));
-                    }
-                }
-                if (currCarCordsArrayList.get(0).getCol() > 0) {
-                    if (this.gameBoard[currentCar.getStartingRow()]
-                            [currCarCordsArrayList.get(0).getCol() - 1] == EMPTY) {
-                        ArrayList<Coordinates> newCordsToPassIn = new ArrayList<>();
-                        currCarCordsArrayList.forEach(currCord -> {
-                            newCordsToPassIn.add(new Coordinates(currCord.getRow(), currCord.getCol() - 1));
-                        });
-                        neighbors.add(new JamConfiguration(this, currentCar, newCordsToPassIn));
-                    }
-                }
-            }
+    private long[] occupancy() {
+        long[] occupied = new long[(this.getNumRows() * this.getNumCols() + Long.SIZE - 1) / Long.SIZE];
+        for (int car = 0; car < this.puzzle.getNumCars(); car++) {
+            this.markCar(occupied, car, this.getPosition(car));
+        }
+        return occupied;
+    }
 
-            if (!currentCar.movesSideways()) {
-                if (currCarCordsArrayList.get(currCarCordsArrayList.size() - 1).getRow() < numRows - 1) {
-                    if (this.gameBoard[currCarCordsArrayList.get(currCarCordsArrayList.size() - 1).getRow() + 1]
-                            [currentCar.getStartingCol()] == EMPTY) {
-                        ArrayList<Coordinates> newCordsToPassIn = new ArrayList<>();
-                        currCarCordsArrayList.forEach(currCord -> {
-                            newCordsToPassIn.add(new Coordinates(currCord.getRow() + 1, currCord.getCol()));
-                        });
-                        neighbors.add(new JamConfiguration(this, currentCar, newCordsToPassIn));
-                    }
-                }
-                if (currCarCordsArrayList.get(0).getRow() > 0) {
-                    if (this.gameBoard[currCarCordsArrayList.get(0).getRow() - 1]
-                            [currentCar.getStartingCol()] == EMPTY) {
-                        ArrayList<Coordinates> newCordsToPassIn = new ArrayList<>();
-                        currCarCordsArrayList.forEach(currCord -> {
-                            newCordsToPassIn.add(new Coordinates(currCord.getRow() - 1, currCord.getCol()));
-                        });
-                        neighbors.add(new JamConfiguration(this, currentCar, newCordsToPassIn));
-                    }
-                }
+    /**
+     * Works out which car covers each cell, so a view can tell which
+     * cells changed between two configurations without drawing the board
+     *
+     * @return index of the car on each cell numbered row by row, -1 for an empty cell
+     */
+    public int[] getCellCars() {
+        int numCols = this.getNumCols();
+        int[] cells = new int[this.getNumRows() * numCols];
+        Arrays.fill(cells, -1);
+        for (int car = 0; car < this.puzzle.getNumCars(); car++) {
+            int lane = this.puzzle.getLane(car);
+            int first = this.getPosition(car);
+            for (int i = first; i < first + this.puzzle.getLength(car); i++) {
+                cells[this.puzzle.movesSideways(car) ? lane * numCols + i : i * numCols + lane] = car;
             }
         }
-        return neighbors;
+        return cells;
+    }
+
+    /**
+     * @return true if the cell is not covered by any car
+     */
+    private static boolean isFree(long[] occupied, int cell) {
+        return (occupied[cell >>> 6] & (1L << cell)) == 0;
     }
 
     /**
      * Getter method
      *
-     * @param currCar is the car that is passed in to find all its positions
+     * @param car index of the car to find all its positions
      * @return ArrayList of all the coordinates of the car that is passed in
      */
-    public ArrayList<Coordinates> getAllCarCoordinates(Car currCar) {
+    public ArrayList<Coordinates> getAllCarCoordinates(int car) {
         ArrayList<Coordinates> coordinatesArrayList = new ArrayList<>();
-        for (int r = 0; r < numRows; r++) {
-            for (int c = 0; c < numCols; c++) {
-                if (this.gameBoard[r][c] == currCar.getCarName().charAt(0)) {
-                    coordinatesArrayList.add(new Coordinates(r, c));
-                }
+        int lane = this.puzzle.getLane(car);
+        int first = this.getPosition(car);
+        for (int i = first; i < first + this.puzzle.getLength(car); i++) {
+            if (this.puzzle.movesSideways(car)) {
+                coordinatesArrayList.add(new Coordinates(lane, i));
+            } else {
+                coordinatesArrayList.add(new Coordinates(i, lane));
             }
         }
         return coordinatesArrayList;
@@ -252,15 +403,113 @@ public class JamConfiguration implements Configuration {
      */
     @Override
     public boolean isSolution() {
-        Car currCar = this.stringCarTreeMap.get("X");
-        ArrayList<Coordinates> carCords = this.getAllCarCoordinates(currCar);
-        Coordinates lastCord = carCords.get(carCords.size() - 1);
-        Coordinates endCord = new Coordinates(currCar.getStartingRow(), numCols - 1);
-        return lastCord.equals(endCord);
+        int goal = this.puzzle.getGoalIndex();
+        return this.getPosition(goal) == this.puzzle.getMaxPosition(goal);
     }
 
     /**
-     * Passes in other Object and checks if their game boards are the same
+     * Estimates the moves left as the distance from the X car to the exit
+     * plus, for every car standing between them, the fewest shifts that
+     * car needs to get out of the X car's row. When a whole slide counts
+     * as one move that becomes one move for the X car plus one for each
+     * car in the way. Either way every counted move has to happen, so the
+     * estimate is never too high.
+     *
+     * @param moveModel what counts as a single move
+     * @return a lower bound on the number of moves to a solution
+     */
+    @Override
+    public int estimateDistance(Solver.MoveModel moveModel) {
+        int goal = this.puzzle.getGoalIndex();
+        int row = this.puzzle.getLane(goal);
+        int end = this.getPosition(goal) + this.puzzle.getLength(goal) - 1;
+        int gap = this.getNumCols() - 1 - end;
+        if (gap == 0 || !this.puzzle.movesSideways(goal)) {
+            return 0;
+        }
+
+        boolean slides = moveModel == Solver.MoveModel.SLIDE;
+        int estimate = slides ? 1 : gap;
+        for (int car = 0; car < this.puzzle.getNumCars(); car++) {
+            int first = this.getPosition(car);
+            int last = first + this.puzzle.getLength(car) - 1;
+            if (this.puzzle.movesSideways(car)) {
+                if (car != goal && this.puzzle.getLane(car) == row && first > end) {
+                    estimate++;
+                }
+            } else if (this.puzzle.getLane(car) > end && first <= row && row <= last) {
+                estimate += slides ? 1 : this.clearingShift(car, row);
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * @return fewest single shifts that move the car off the row, ignoring other cars
+     */
+    private int clearingShift(int car, int row) {
+        int first = this.getPosition(car);
+        int up = first + this.puzzle.getLength(car) - row;
+        int down = row - first + 1;
+        boolean canGoUp = first - up >= 0;
+        boolean canGoDown = first + down <= this.puzzle.getMaxPosition(car);
+        if (canGoUp && canGoDown) {
+            return Math.min(up, down);
+        }
+        return canGoUp ? up : canGoDown ? down : 1;
+    }
+
+    /**
+     * @return true if every car position fits in the first packed word
+     */
+    @Override
+    public boolean isPackable() {
+        return this.overflow == null;
+    }
+
+    /**
+     * @return the packed car positions
+     */
+    @Override
+    public long getPackedState() {
+        return this.packed;
+    }
+
+    /**
+     * @return the configuration of this puzzle with those packed car positions
+     */
+    @Override
+    public JamConfiguration unpack(long state) {
+        return new JamConfiguration(this.puzzle, state, null);
+    }
+
+    /**
+     * Writes this configuration out as a game file, with every car
+     * starting where it is now
+     *
+     * @return the text of the game file
+     */
+    public String toGameFile() {
+        StringBuilder res = new StringBuilder();
+        res.append(this.getNumRows()).append(' ').append(this.getNumCols()).append('\n');
+        res.append(this.puzzle.getNumCars()).append('\n');
+        for (int car = 0; car < this.puzzle.getNumCars(); car++) {
+            int lane = this.puzzle.getLane(car);
+            int first = this.getPosition(car);
+            int last = first + this.puzzle.getLength(car) - 1;
+            res.append(this.puzzle.getName(car)).append(' ');
+            if (this.puzzle.movesSideways(car)) {
+                res.append(lane).append(' ').append(first).append(' ').append(lane).append(' ').append(last);
+            } else {
+                res.append(first).append(' ').append(lane).append(' ').append(last).append(' ').append(lane);
+            }
+            res.append('\n');
+        }
+        return res.toString();
+    }
+
+    /**
+     * Passes in other Object and checks if their car positions are the same
      *
      * @param other instance of JamConfig class
      * @return true if equal, false otherwise
@@ -269,7 +518,9 @@ public class JamConfiguration implements Configuration {
     public boolean equals(Object other) {
         boolean result = false;
         if (other instanceof JamConfiguration otherJamConfig) {
-            result = Arrays.deepEquals(this.gameBoard, otherJamConfig.gameBoard);
+            result = this.packed == otherJamConfig.packed
+                    && (this.puzzle == otherJamConfig.puzzle || this.puzzle.equals(otherJamConfig.puzzle))
+                    && Arrays.equals(this.overflow, otherJamConfig.overflow);
         }
         return result;
     }
@@ -282,6 +533,7 @@ public class JamConfiguration implements Configuration {
     @Override
     public String toString() {
         StringBuilder res = new StringBuilder();
+        char[][] board = this.toBoard();
 
         res.append("   ");
         for (int col = 0; col < this.getNumCols(); ++col) {
@@ -295,10 +547,10 @@ public class JamConfiguration implements Configuration {
         }
         res.append(System.lineSeparator());
 
-        for (int i = 0; i < numRows; i++) {
+        for (int i = 0; i < this.getNumRows(); i++) {
             res.append(i).append("| ");
-            for (int j = 0; j < numCols; j++) {
-                res.append(this.gameBoard[i][j]).append(" ");
+            for (int j = 0; j < this.getNumCols(); j++) {
+                res.append(board[i][j]).append(" ");
             }
             res.append(System.lineSeparator());
         }
@@ -307,34 +559,103 @@ public class JamConfiguration implements Configuration {
     }
 
     /**
-     * Gets the hashcode for the game board
+     * Gets the hashcode for the packed car positions. Wide boards fold
+     * the Zobrist hash they carry instead of hashing every word.
      *
      * @return int hashcode
      */
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(this.gameBoard);
+        long mixed = this.overflow == null ? this.packed * 0x9E3779B97F4A7C15L : this.overflow[this.overflow.length - 1];
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /**
+     * Draws the cars onto a fresh game board
+     *
+     * @return the game board with every car plotted at its position
+     */
+    private char[][] toBoard() {
+        char[][] board = new char[this.getNumRows()][this.getNumCols()];
+        for (char[] row : board) {
+            Arrays.fill(row, EMPTY);
+        }
+        for (int car = 0; car < this.puzzle.getNumCars(); car++) {
+            int lane = this.puzzle.getLane(car);
+            int first = this.getPosition(car);
+            for (int i = first; i < first + this.puzzle.getLength(car); i++) {
+                if (this.puzzle.movesSideways(car)) {
+                    board[lane][i] = this.puzzle.getSymbol(car);
+                } else {
+                    board[i][lane] = this.puzzle.getSymbol(car);
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * @return first row or column the car covers in its lane
+     */
+    public int getPosition(int car) {
+        return this.puzzle.unpack(this.packed, this.overflow, car);
     }
 
     /**
      * @return char that is at the certain row, col input
      */
     public char getCharAtCord(int row, int col) {
-        return this.gameBoard[row][col];
+        for (int car = 0; car < this.puzzle.getNumCars(); car++) {
+            int lane = this.puzzle.getLane(car);
+            int first = this.getPosition(car);
+            int along = this.puzzle.movesSideways(car) ? col : row;
+            int across = this.puzzle.movesSideways(car) ? row : col;
+            if (across == lane && along >= first && along < first + this.puzzle.getLength(car)) {
+                return this.puzzle.getSymbol(car);
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Moves every car over to the canonical form of the puzzle, so the
+     * configuration can be looked up in tables shared by puzzles that
+     * only differ by the names of their blocker cars
+     *
+     * @return the same car positions in the canonical puzzle
+     */
+    public JamConfiguration toCanonical() {
+        JamPuzzle canonical = this.puzzle.canonical();
+        if (canonical == this.puzzle) {
+            return this;
+        }
+        int[] positions = new int[this.puzzle.getNumCars()];
+        for (int car = 0; car < positions.length; car++) {
+            positions[car] = this.getPosition(this.puzzle.getCanonicalCar(car));
+        }
+        long[] words = canonical.pack(positions);
+        return new JamConfiguration(canonical, words[0], words.length == 1 ? null : withHash(words, canonical.zobrist(positions)));
+    }
+
+    /**
+     * @return the puzzle this configuration belongs to
+     */
+    public JamPuzzle getPuzzle() {
+        return this.puzzle;
     }
 
     /**
      * @return int number of rows
      */
     public int getNumRows() {
-        return numRows;
+        return this.puzzle.getNumRows();
     }
 
     /**
      * @return int number of columns
      */
     public int getNumCols() {
-        return numCols;
+        return this.puzzle.getNumCols();
     }
 
 }
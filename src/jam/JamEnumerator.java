@@ -0,0 +1,631 @@
+package jam;
+
+import commonJam.solver.DistanceLookup;
+import commonJam.solver.DistanceTable;
+import commonJam.solver.Solver;
+import commonJam.solver.StateTable;
+import java.io.IOException;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Mines the hardest puzzles there are for a board size and a set of
+ * blocker cars by going through every legal layout of them.
+ * <p>
+ * Cars never leave their lanes and never pass a car in the same lane, so
+ * the layouts split up by which cars sit in each lane and in what order.
+ * Each such lane assignment is one puzzle shape, and every layout of a
+ * shape is tried in turn. A layout that hasn't been seen yet starts a new
+ * cluster: everything reachable from it is listed in a distance table,
+ * and the member farthest from any solution is the cluster's hardest
+ * puzzle. Shapes have nothing to do with each other, so they are handed
+ * out lane by lane to the workers of a work-stealing pool.
+ * <p>
+ * The X car is two long and sits in the exit row, last of the sideways
+ * cars there, since a car to its right could never get out of its way.
+ *
+ * @author Andrew Photinakis
+ */
+public class JamEnumerator {
+
+    /**
+     * names given to the blocker cars, in the order they are placed
+     */
+    private static final String NAMES = "ABCDEFGHIJKLMNOPQRSTUVWYZabcdefghijklmnopqrstuvwxyz";
+    /**
+     * number of cells the X car covers
+     */
+    private static final int GOAL_LENGTH = 2;
+
+    /**
+     * A kind of blocker car
+     *
+     * @param sideways true if it moves sideways
+     * @param length   number of cells it covers
+     */
+    public record Kind(boolean sideways, int length) {
+
+        /**
+         * Reads a kind written as h or v for its direction followed by its length, like h2 or v3
+         *
+         * @param text the written kind
+         * @return the kind
+         * @throws IllegalArgumentException if the text isn't a kind
+         */
+        public static Kind parse(String text) {
+            char direction = text.isEmpty() ? ' ' : Character.toLowerCase(text.charAt(0));
+            if (direction != 'h' && direction != 'v') {
+                throw new IllegalArgumentException("Not a car kind: " + text);
+            }
+            return new Kind(direction == 'h', Integer.parseInt(text.substring(1)));
+        }
+
+        /**
+         * @return the kind as it is written
+         */
+        @Override
+        public String toString() {
+            return (this.sideways ? "h" : "v") + this.length;
+        }
+    }
+
+    /**
+     * The hardest puzzle of one cluster
+     *
+     * @param hardest  a configuration as far from any solution as the cluster has
+     * @param moves    moves it takes to solve
+     * @param farthest number of configurations that far from a solution
+     * @param size     number of configurations in the cluster
+     */
+    public record Cluster(JamConfiguration hardest, int moves, int farthest, int size) {
+    }
+
+    /**
+     * One car of a puzzle shape
+     *
+     * @param sideways true if it moves sideways
+     * @param lane     the row of a sideways car, the column otherwise
+     * @param length   number of cells it covers
+     * @param goal     true for the X car
+     */
+    private record LaneCar(boolean sideways, int lane, int length, boolean goal) {
+    }
+
+    /**
+     * game board number of rows
+     */
+    private final int numRows;
+    /**
+     * game board number of columns
+     */
+    private final int numCols;
+    /**
+     * row the X car leaves the board by
+     */
+    private final int exitRow;
+    /**
+     * kinds of blocker cars
+     */
+    private final List<Kind> kinds;
+    /**
+     * how many cars of each kind every layout has
+     */
+    private final int[] counts;
+    /**
+     * what counts as a single move
+     */
+    private final Solver.MoveModel moveModel;
+    /**
+     * fewest moves a cluster's hardest puzzle needs to be reported
+     */
+    private final int minMoves;
+    /**
+     * shapes that had at least one layout
+     */
+    private final AtomicLong shapes = new AtomicLong();
+    /**
+     * layouts tried
+     */
+    private final AtomicLong layouts = new AtomicLong();
+    /**
+     * clusters found, solvable or not
+     */
+    private final AtomicLong clusters = new AtomicLong();
+
+    /**
+     * @param numRows   game board number of rows
+     * @param numCols   game board number of columns
+     * @param exitRow   row the X car leaves the board by
+     * @param inventory how many cars of each kind every layout has
+     * @param moveModel what counts as a single move
+     * @param minMoves  fewest moves a cluster's hardest puzzle needs to be reported
+     */
+    public JamEnumerator(int numRows, int numCols, int exitRow, Map<Kind, Integer> inventory,
+                         Solver.MoveModel moveModel, int minMoves) {
+        if (exitRow < 0 || exitRow >= numRows || numCols < GOAL_LENGTH) {
+            throw new IllegalArgumentException("No exit row " + exitRow + " on a " + numRows + "x" + numCols + " board");
+        }
+        if (minMoves < 0) {
+            throw new IllegalArgumentException("minMoves can't be negative, was " + minMoves);
+        }
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.exitRow = exitRow;
+        this.kinds = new ArrayList<>(inventory.keySet());
+        this.counts = new int[this.kinds.size()];
+        int cars = 0;
+        /** every shape has the same cars, so a layout takes the same bits whichever lanes they are in */
+        int bits = positionBits(numCols - GOAL_LENGTH);
+        for (int i = 0; i < this.counts.length; i++) {
+            Kind kind = this.kinds.get(i);
+            if (kind.length() < 1 || kind.length() > (kind.sideways() ? numCols : numRows)) {
+                throw new IllegalArgumentException("A " + kind + " car doesn't fit on the board");
+            }
+            this.counts[i] = inventory.get(kind);
+            cars += this.counts[i];
+            bits += this.counts[i] * positionBits((kind.sideways() ? numCols : numRows) - kind.length());
+        }
+        if (cars > NAMES.length()) {
+            throw new IllegalArgumentException("At most " + NAMES.length() + " blocker cars, was " + cars);
+        }
+        if (bits > Long.SIZE) {
+            throw new IllegalArgumentException("Layouts of a " + numRows + "x" + numCols
+                    + " board with these cars are too big to pack into a long");
+        }
+        this.moveModel = moveModel;
+        this.minMoves = minMoves;
+    }
+
+    /**
+     * Runs an enumeration from the command line:
+     * rows cols inventory outDir, then the options --exit-row r,
+     * --threads n, --min-moves k and --model SLIDE|SINGLE_STEP. The
+     * inventory lists how many of each kind of blocker car there are,
+     * like h2=4,h3=1,v2=3,v3=2. The hardest puzzle of every cluster that
+     * takes at least the minimum moves is written to the out directory
+     * as a game file.
+     *
+     * @param args the board, inventory, out directory and options
+     * @throws IOException if a puzzle can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: java Jam --enumerate rows cols inventory outDir [--exit-row r] "
+                    + "[--threads n] [--min-moves k] [--model SLIDE|SINGLE_STEP]");
+            System.out.println("       inventory is like h2=4,h3=1,v2=3,v3=2");
+            return;
+        }
+        int numRows = Integer.parseInt(args[0]);
+        int numCols = Integer.parseInt(args[1]);
+        Map<Kind, Integer> inventory = new LinkedHashMap<>();
+        for (String item : args[2].split(",")) {
+            String[] fields = item.split("=");
+            inventory.merge(Kind.parse(fields[0]), Integer.parseInt(fields[1]), Integer::sum);
+        }
+        Path outDir = Path.of(args[3]);
+        int exitRow = (numRows - 1) / 2;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int minMoves = 1;
+        Solver.MoveModel moveModel = Solver.MoveModel.SLIDE;
+        for (int i = 4; i < args.length; i++) {
+            switch (args[i]) {
+                case "--exit-row" -> exitRow = Integer.parseInt(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--min-moves" -> minMoves = Integer.parseInt(args[++i]);
+                case "--model" -> moveModel = Solver.MoveModel.valueOf(args[++i].toUpperCase());
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        JamEnumerator enumerator = new JamEnumerator(numRows, numCols, exitRow, inventory, moveModel, minMoves);
+        Files.createDirectories(outDir);
+        AtomicInteger written = new AtomicInteger();
+        long begin = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            enumerator.run(pool, cluster -> {
+                Path file = outDir.resolve(String.format("hard-%03d-%06d.txt", cluster.moves(), written.incrementAndGet()));
+                try {
+                    Files.writeString(file, cluster.hardest().toGameFile());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                System.out.println(file + " moves " + cluster.moves() + ", " + cluster.farthest()
+                        + " as hard, cluster of " + cluster.size());
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        System.out.printf("%d shapes, %d layouts, %d clusters, %d puzzles written in %.1f s%n",
+                enumerator.getShapes(), enumerator.getLayouts(), enumerator.getClusters(), written.get(),
+                (System.nanoTime() - begin) / 1e9);
+    }
+
+    /**
+     * Goes through every layout, handing the hardest puzzle of each
+     * cluster that takes at least the minimum moves to the consumer.
+     * The consumer is called from the pool's workers, so it has to be
+     * safe to call from several threads at once.
+     *
+     * @param pool  the pool the shapes are worked on in
+     * @param found gets the hardest puzzle of each cluster
+     */
+    public void run(ForkJoinPool pool, Consumer<Cluster> found) {
+        pool.invoke(new LaneTask(0, List.of(), this.counts.clone(), found));
+    }
+
+    /**
+     * @return shapes that had at least one layout
+     */
+    public long getShapes() {
+        return this.shapes.get();
+    }
+
+    /**
+     * @return layouts tried
+     */
+    public long getLayouts() {
+        return this.layouts.get();
+    }
+
+    /**
+     * @return clusters found, solvable or not
+     */
+    public long getClusters() {
+        return this.clusters.get();
+    }
+
+    /**
+     * @param maxPosition highest first row or column a car can have
+     * @return bits a packed layout takes for the car's position
+     */
+    private static int positionBits(int maxPosition) {
+        return Long.SIZE - Long.numberOfLeadingZeros(maxPosition);
+    }
+
+    /**
+     * @return number of horizontal and vertical lanes
+     */
+    private int getNumLanes() {
+        return this.numRows + this.numCols;
+    }
+
+    /**
+     * Is there still room in the lanes from this one on for the cars left?
+     * Sideways cars only go in rows and the others only in columns.
+     *
+     * @param lane first lane not filled yet
+     * @param left cars of each kind left to place
+     * @return false if the cars left can't all fit
+     */
+    private boolean fits(int lane, int[] left) {
+        int sidewaysCells = 0;
+        int upDownCells = 0;
+        for (int i = 0; i < left.length; i++) {
+            if (this.kinds.get(i).sideways()) {
+                sidewaysCells += left[i] * this.kinds.get(i).length();
+            } else {
+                upDownCells += left[i] * this.kinds.get(i).length();
+            }
+        }
+        int rowsLeft = Math.max(this.numRows - lane, 0);
+        int rowCells = rowsLeft * this.numCols - (lane <= this.exitRow ? GOAL_LENGTH : 0);
+        int colsLeft = Math.min(this.getNumLanes() - lane, this.numCols);
+        return sidewaysCells <= rowCells && upDownCells <= colsLeft * this.numRows;
+    }
+
+    /**
+     * Fills one lane with every run of cars that fits in it, one after
+     * another along the lane, and whatever the lanes after it can hold
+     */
+    private final class LaneTask extends RecursiveAction {
+
+        /**
+         * tasks are never serialized, this only quiets the warning
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the lane to fill, rows first and then columns
+         */
+        private final int lane;
+        /**
+         * cars of the lanes already filled, in the order they sit
+         */
+        private final List<LaneCar> cars;
+        /**
+         * cars of each kind left to place
+         */
+        private final int[] left;
+        /**
+         * gets the hardest puzzle of each cluster
+         */
+        private final Consumer<Cluster> found;
+
+        /**
+         * @param lane  the lane to fill, rows first and then columns
+         * @param cars  cars of the lanes already filled, in the order they sit
+         * @param left  cars of each kind left to place
+         * @param found gets the hardest puzzle of each cluster
+         */
+        LaneTask(int lane, List<LaneCar> cars, int[] left, Consumer<Cluster> found) {
+            this.lane = lane;
+            this.cars = cars;
+            this.left = left;
+            this.found = found;
+        }
+
+        /**
+         * Analyses the shape once every lane is filled, otherwise forks a
+         * task for every way of filling this lane
+         */
+        @Override
+        protected void compute() {
+            if (this.lane == getNumLanes()) {
+                for (int count : this.left) {
+                    if (count != 0) {
+                        return;
+                    }
+                }
+                new Shape(this.cars, this.found).enumerate();
+                return;
+            }
+            if (!fits(this.lane, this.left)) {
+                return;
+            }
+            boolean sideways = this.lane < numRows;
+            int index = sideways ? this.lane : this.lane - numRows;
+            int room = (sideways ? numCols : numRows) - (sideways && index == exitRow ? GOAL_LENGTH : 0);
+            List<LaneTask> next = new ArrayList<>();
+            this.fill(sideways, index, room, new ArrayList<>(this.cars), this.left.clone(), next);
+            invokeAll(next);
+        }
+
+        /**
+         * Adds a task for the lane as filled so far, then tries putting
+         * each kind of car that still fits next in the lane
+         *
+         * @param sideways true for a row, false for a column
+         * @param index    the row or column
+         * @param room     cells of the lane still free
+         * @param filled   cars placed so far, this lane's last
+         * @param left     cars of each kind left to place
+         * @param next     the tasks for the next lane
+         */
+        private void fill(boolean sideways, int index, int room, List<LaneCar> filled, int[] left,
+                          List<LaneTask> next) {
+            List<LaneCar> done = new ArrayList<>(filled);
+            if (sideways && index == exitRow) {
+                done.add(new LaneCar(true, index, GOAL_LENGTH, true));
+            }
+            next.add(new LaneTask(this.lane + 1, done, left.clone(), this.found));
+            for (int i = 0; i < left.length; i++) {
+                Kind kind = kinds.get(i);
+                if (kind.sideways() == sideways && left[i] > 0 && kind.length() <= room) {
+                    left[i]--;
+                    filled.add(new LaneCar(sideways, index, kind.length(), false));
+                    this.fill(sideways, index, room - kind.length(), filled, left, next);
+                    filled.remove(filled.size() - 1);
+                    left[i]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Every layout of one puzzle shape, split into clusters
+     */
+    private final class Shape {
+
+        /**
+         * the shape's cars, in the order they sit lane by lane
+         */
+        private final List<LaneCar> cars;
+        /**
+         * gets the hardest puzzle of each cluster
+         */
+        private final Consumer<Cluster> found;
+        /**
+         * first row or column of each car in the layout being built
+         */
+        private final int[] positions;
+        /**
+         * cells covered by the cars placed so far
+         */
+        private final long[] occupied;
+        /**
+         * the shape as a puzzle, made from its first layout
+         */
+        private JamPuzzle puzzle;
+        /**
+         * index in the puzzle of each car
+         */
+        private int[] indices;
+        /**
+         * the puzzle's starting configuration, to unpack states with
+         */
+        private JamConfiguration start;
+        /**
+         * every layout already in a cluster
+         */
+        private StateTable seen;
+        /**
+         * layouts tried
+         */
+        private long layoutCount;
+        /**
+         * clusters found
+         */
+        private long clusterCount;
+
+        /**
+         * @param cars  the shape's cars, in the order they sit lane by lane
+         * @param found gets the hardest puzzle of each cluster
+         */
+        Shape(List<LaneCar> cars, Consumer<Cluster> found) {
+            this.cars = cars;
+            this.found = found;
+            this.positions = new int[cars.size()];
+            this.occupied = new long[(numRows * numCols + Long.SIZE - 1) / Long.SIZE];
+        }
+
+        /**
+         * Tries every layout of the shape and adds up what was found
+         */
+        void enumerate() {
+            this.place(0);
+            if (this.puzzle != null) {
+                shapes.incrementAndGet();
+                layouts.addAndGet(this.layoutCount);
+                clusters.addAndGet(this.clusterCount);
+            }
+        }
+
+        /**
+         * Tries every free position for the cars from this one on. A car
+         * starts after the one before it when they share a lane.
+         *
+         * @param car index of the next car to place
+         */
+        private void place(int car) {
+            if (car == this.cars.size()) {
+                this.visit();
+                return;
+            }
+            LaneCar laneCar = this.cars.get(car);
+            int from = 0;
+            if (car > 0) {
+                LaneCar before = this.cars.get(car - 1);
+                if (before.sideways() == laneCar.sideways() && before.lane() == laneCar.lane()) {
+                    from = this.positions[car - 1] + before.length();
+                }
+            }
+            int max = (laneCar.sideways() ? numCols : numRows) - laneCar.length();
+            for (int p = from; p <= max; p++) {
+                if (this.isFree(laneCar, p)) {
+                    this.mark(laneCar, p);
+                    this.positions[car] = p;
+                    this.place(car + 1);
+                    this.mark(laneCar, p);
+                }
+            }
+        }
+
+        /**
+         * @return true if none of the cells the car would cover there are taken
+         */
+        private boolean isFree(LaneCar car, int position) {
+            for (int i = 0; i < car.length(); i++) {
+                int cell = this.cell(car, position + i);
+                if ((this.occupied[cell >>> 6] & (1L << cell)) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Flips the cells the car covers at a position, marking or unmarking them
+         */
+        private void mark(LaneCar car, int position) {
+            for (int i = 0; i < car.length(); i++) {
+                int cell = this.cell(car, position + i);
+                this.occupied[cell >>> 6] ^= 1L << cell;
+            }
+        }
+
+        /**
+         * @return number of the cell at that place along the car's lane
+         */
+        private int cell(LaneCar car, int along) {
+            return car.sideways() ? car.lane() * numCols + along : along * numCols + car.lane();
+        }
+
+        /**
+         * Starts a new cluster at the layout just placed unless it is
+         * already in one
+         */
+        private void visit() {
+            this.layoutCount++;
+            if (this.puzzle == null) {
+                this.makePuzzle();
+            }
+            long state = 0;
+            for (int car = 0; car < this.positions.length; car++) {
+                state = this.puzzle.repack(state, this.indices[car], this.positions[car]);
+            }
+            if (this.seen.indexOf(state) >= 0) {
+                return;
+            }
+
+            DistanceTable table = DistanceTable.build(this.start.unpack(state), moveModel);
+            int hardest = -1;
+            int moves = DistanceLookup.UNSOLVABLE;
+            int farthest = 0;
+            for (int i = 0; i < table.size(); i++) {
+                this.seen.add(table.getState(i), StateTable.NO_PARENT);
+                int distance = table.getDistance(i);
+                if (distance > moves) {
+                    hardest = i;
+                    moves = distance;
+                    farthest = 1;
+                } else if (distance == moves) {
+                    farthest++;
+                }
+            }
+            this.clusterCount++;
+            if (moves >= minMoves) {
+                this.found.accept(new Cluster(this.start.unpack(table.getState(hardest)), moves, farthest, table.size()));
+            }
+        }
+
+        /**
+         * Makes the puzzle of the shape with the first layout as its start
+         */
+        private void makePuzzle() {
+            List<Car> named = new ArrayList<>();
+            String[] names = new String[this.cars.size()];
+            int blocker = 0;
+            for (int car = 0; car < this.cars.size(); car++) {
+                LaneCar laneCar = this.cars.get(car);
+                names[car] = laneCar.goal() ? JamPuzzle.GOAL_CAR : String.valueOf(NAMES.charAt(blocker++));
+                int first = this.positions[car];
+                int last = first + laneCar.length() - 1;
+                named.add(laneCar.sideways()
+                        ? new Car(names[car], laneCar.lane(), first, laneCar.lane(), last)
+                        : new Car(names[car], first, laneCar.lane(), last, laneCar.lane()));
+            }
+            named.sort(Comparator.comparing(Car::getCarName));
+            try {
+                this.puzzle = JamPuzzle.of(numRows, numCols, named, "an enumerated shape");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            if (this.puzzle.getNumWords() > 1) {
+                throw new IllegalStateException("A layout of " + this.cars.size() + " cars doesn't pack into a long");
+            }
+            this.indices = new int[names.length];
+            for (int car = 0; car < names.length; car++) {
+                this.indices[car] = this.puzzle.indexOf(names[car]);
+            }
+            this.start = new JamConfiguration(this.puzzle);
+            this.seen = new StateTable();
+        }
+    }
+
+}
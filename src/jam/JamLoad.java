@@ -0,0 +1,661 @@
+package jam;
+
+import commonJam.Observer;
+import commonJam.solver.Solver;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puts load on JamModel without a GUI, the way a multiplayer server
+ * would see it: a number of simulated players, each with a model of its
+ * own and its own thread, select, hint, reset and load for a while as
+ * fast as they can, or with a pause between operations to stand in for
+ * a person thinking. Random players click anywhere, greedy players make
+ * whichever slide looks closest to a solution and optimal players follow
+ * the hints. Every player listens to its model through an observer, as
+ * a view would, and loads another puzzle once it solves one.
+ * <p>
+ * Operations are only timed after a warm-up, and the report gives the
+ * operations per second, latency percentiles and bytes allocated for
+ * each kind of operation, and how much each kind of player got done.
+ *
+ * @author Andrew Photinakis
+ */
+public class JamLoad {
+
+    /**
+     * chance a random player resets instead of clicking
+     */
+    private static final double RESET_CHANCE = 0.005;
+    /**
+     * chance a random player asks for a hint instead of clicking
+     */
+    private static final double HINT_CHANCE = 0.01;
+    /**
+     * chance a random player loads another puzzle instead of clicking
+     */
+    private static final double LOAD_CHANCE = 0.002;
+    /**
+     * chance a greedy player makes any slide instead of the one that looks best
+     */
+    private static final double WANDER_CHANCE = 0.1;
+    /**
+     * slides a greedy player makes before starting the puzzle over
+     */
+    private static final int MAX_GREEDY_MOVES = 200;
+    /**
+     * percentiles reported for every operation
+     */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    /**
+     * counts the bytes each thread allocates
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATION =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * How a simulated player picks what to do next
+     */
+    public enum Strategy {
+        /**
+         * clicks random cells, now and then resetting, asking for a hint or loading
+         */
+        RANDOM,
+        /**
+         * makes the slide whose configuration is estimated closest to a solution
+         */
+        GREEDY,
+        /**
+         * asks for a hint every turn, following a shortest solution
+         */
+        OPTIMAL
+    }
+
+    /**
+     * The calls a player makes on its model
+     */
+    public enum Operation {
+        SELECT, HINT, RESET, LOAD
+    }
+
+    /**
+     * A call on a model being timed
+     */
+    @FunctionalInterface
+    private interface Action {
+        /**
+         * @throws IOException if the model can't notify
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Latencies and allocations of one kind of operation, in buckets
+     * that grow with the latency so any number of operations fits
+     * in the same space. Each bucket is within about 6% of the latencies
+     * in it.
+     */
+    private static final class Histogram {
+        /**
+         * bits of each latency kept past its highest one
+         */
+        private static final int SUB_BITS = 4;
+        /**
+         * number of operations in each bucket
+         */
+        private final long[] counts = new long[Long.SIZE << SUB_BITS];
+        /**
+         * number of operations
+         */
+        private long total;
+        /**
+         * longest latency in nanoseconds
+         */
+        private long max;
+        /**
+         * bytes allocated by all the operations
+         */
+        private long bytes;
+
+        /**
+         * @param nanos latency of an operation
+         * @param bytes bytes the operation allocated
+         */
+        void record(long nanos, long bytes) {
+            this.counts[bucket(nanos)]++;
+            this.total++;
+            this.max = Math.max(this.max, nanos);
+            this.bytes += bytes;
+        }
+
+        /**
+         * @param other histogram whose operations are added to this one
+         */
+        void add(Histogram other) {
+            for (int i = 0; i < this.counts.length; i++) {
+                this.counts[i] += other.counts[i];
+            }
+            this.total += other.total;
+            this.max = Math.max(this.max, other.max);
+            this.bytes += other.bytes;
+        }
+
+        /**
+         * @param percentile how many operations out of a hundred were at least as fast
+         * @return the latency in nanoseconds, at the top of its bucket
+         */
+        long percentile(double percentile) {
+            long rank = (long) Math.ceil(percentile / 100 * this.total);
+            long seen = 0;
+            for (int i = 0; i < this.counts.length; i++) {
+                seen += this.counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(highest(i), this.max);
+                }
+            }
+            return this.max;
+        }
+
+        /**
+         * @return the bucket a latency goes in
+         */
+        private static int bucket(long nanos) {
+            if (nanos < 1 << SUB_BITS) {
+                return (int) Math.max(nanos, 0);
+            }
+            int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+            return ((shift + 1) << SUB_BITS) + (int) ((nanos >>> shift) & ((1 << SUB_BITS) - 1));
+        }
+
+        /**
+         * @return the highest latency that goes in a bucket
+         */
+        private static long highest(int bucket) {
+            if (bucket < 1 << SUB_BITS) {
+                return bucket;
+            }
+            int shift = (bucket >>> SUB_BITS) - 1;
+            long sub = bucket & ((1 << SUB_BITS) - 1);
+            return (((1L << SUB_BITS) + sub + 1) << shift) - 1;
+        }
+    }
+
+    /**
+     * One simulated player, listening to its own model
+     */
+    private static final class Player implements Observer<JamModel, String> {
+        /**
+         * how the player picks what to do next
+         */
+        private final Strategy strategy;
+        /**
+         * the player's model
+         */
+        private final JamModel model;
+        /**
+         * the puzzles the player loads from
+         */
+        private final List<JamPuzzle> puzzles;
+        /**
+         * name each puzzle is loaded under
+         */
+        private final List<String> names;
+        /**
+         * where the player's choices come from
+         */
+        private final Random random;
+        /**
+         * when operations start being timed
+         */
+        private final long measureFrom;
+        /**
+         * timings of each kind of operation
+         */
+        private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        /**
+         * the message the model made last
+         */
+        private String lastMessage;
+        /**
+         * number of messages the model made, warm-up included
+         */
+        private long messages;
+        /**
+         * number of puzzles solved while timing
+         */
+        private long solved;
+        /**
+         * slides made since the puzzle was loaded
+         */
+        private int moves;
+        /**
+         * configuration before the last slide, so a greedy player doesn't slide straight back
+         */
+        private JamConfiguration previous;
+
+        /**
+         * @param strategy    how the player picks what to do next
+         * @param puzzles     the puzzles the player loads from
+         * @param names       name each puzzle is loaded under
+         * @param hintMode    how the player's model works out hints
+         * @param seed        seed for the player's choices
+         * @param measureFrom when operations start being timed
+         */
+        Player(Strategy strategy, List<JamPuzzle> puzzles, List<String> names, JamModel.HintMode hintMode,
+               long seed, long measureFrom) {
+            this.strategy = strategy;
+            this.puzzles = puzzles;
+            this.names = names;
+            this.random = new Random(seed);
+            this.measureFrom = measureFrom;
+            int first = this.random.nextInt(puzzles.size());
+            this.model = new JamModel(puzzles.get(first), names.get(first));
+            this.model.setHintMode(hintMode);
+            this.model.addObserver(this);
+            for (Operation operation : Operation.values()) {
+                this.histograms.put(operation, new Histogram());
+            }
+        }
+
+        /**
+         * Nothing to set up without a view
+         */
+        @Override
+        public void init() {
+        }
+
+        /**
+         * Keeps the model's message, as a view would show it
+         *
+         * @param jamModel the player's model
+         * @param msg      the message the model made
+         */
+        @Override
+        public void update(JamModel jamModel, String msg) {
+            this.lastMessage = msg;
+            this.messages++;
+        }
+
+        /**
+         * Plays until the deadline, loading another puzzle after every one solved
+         *
+         * @param deadline   when to stop
+         * @param thinkNanos pause after every operation
+         * @throws IOException if the model can't notify
+         */
+        void play(long deadline, long thinkNanos) throws IOException {
+            while (System.nanoTime() < deadline) {
+                if (this.model.getConfig().isSolution()) {
+                    if (System.nanoTime() >= this.measureFrom) {
+                        this.solved++;
+                    }
+                    this.load();
+                } else {
+                    switch (this.strategy) {
+                        case RANDOM -> this.randomTurn();
+                        case GREEDY -> this.greedyTurn();
+                        case OPTIMAL -> this.optimalTurn();
+                    }
+                }
+                if (thinkNanos > 0) {
+                    LockSupport.parkNanos(thinkNanos);
+                }
+            }
+        }
+
+        /**
+         * Clicks a random cell, or now and then resets, asks for a hint or loads
+         *
+         * @throws IOException if the model can't notify
+         */
+        private void randomTurn() throws IOException {
+            double roll = this.random.nextDouble();
+            if (roll < RESET_CHANCE) {
+                this.reset();
+            } else if (roll < RESET_CHANCE + HINT_CHANCE) {
+                this.hint();
+            } else if (roll < RESET_CHANCE + HINT_CHANCE + LOAD_CHANCE) {
+                this.load();
+            } else {
+                this.select(this.random.nextInt(this.model.getThisConfigRows()),
+                        this.random.nextInt(this.model.getThisConfigCols()));
+            }
+        }
+
+        /**
+         * Makes the slide that looks closest to a solution, never straight
+         * back, or now and then any slide at all. Starts over after too
+         * many slides without solving.
+         *
+         * @throws IOException if the model can't notify
+         */
+        private void greedyTurn() throws IOException {
+            if (this.moves >= MAX_GREEDY_MOVES) {
+                this.reset();
+                return;
+            }
+            JamConfiguration config = this.model.getConfig();
+            List<JamConfiguration> slides = new ArrayList<>();
+            config.forEachSlideNeighbor(neighbor -> {
+                if (!neighbor.equals(this.previous)) {
+                    slides.add((JamConfiguration) neighbor);
+                }
+            });
+            if (slides.isEmpty()) {
+                this.reset();
+                return;
+            }
+
+            JamConfiguration next = slides.get(this.random.nextInt(slides.size()));
+            if (this.random.nextDouble() >= WANDER_CHANCE) {
+                /** ties are broken at random, so the player doesn't go round the same few slides */
+                int best = Integer.MAX_VALUE;
+                int ties = 0;
+                for (JamConfiguration slide : slides) {
+                    int estimate = slide.estimateDistance(Solver.MoveModel.SINGLE_STEP);
+                    if (estimate < best) {
+                        best = estimate;
+                        ties = 1;
+                        next = slide;
+                    } else if (estimate == best && this.random.nextInt(++ties) == 0) {
+                        next = slide;
+                    }
+                }
+            }
+            this.slide(config, next);
+        }
+
+        /**
+         * Asks for a hint, loading another puzzle if there is no solution
+         *
+         * @throws IOException if the model can't notify
+         */
+        private void optimalTurn() throws IOException {
+            this.hint();
+            if ("No solution".equals(this.lastMessage)) {
+                this.load();
+            }
+        }
+
+        /**
+         * Makes a slide the way a person would, selecting the car and then
+         * the cell at the far end of the slide
+         *
+         * @param config the configuration now
+         * @param next   the configuration after the slide
+         * @throws IOException if the model can't notify
+         */
+        private void slide(JamConfiguration config, JamConfiguration next) throws IOException {
+            JamPuzzle puzzle = config.getPuzzle();
+            int car = 0;
+            while (config.getPosition(car) == next.getPosition(car)) {
+                car++;
+            }
+            int lane = puzzle.getLane(car);
+            int from = config.getPosition(car);
+            int to = next.getPosition(car);
+            int target = to < from ? to : to + puzzle.getLength(car) - 1;
+            if (puzzle.movesSideways(car)) {
+                this.select(lane, from);
+                this.select(lane, target);
+            } else {
+                this.select(from, lane);
+                this.select(target, lane);
+            }
+            this.previous = config;
+            this.moves++;
+        }
+
+        /**
+         * @throws IOException if the model can't notify
+         */
+        private void select(int row, int col) throws IOException {
+            this.time(Operation.SELECT, () -> this.model.selection(row, col));
+        }
+
+        /**
+         * Asks for a hint, a search running past the time limit counting as an answer
+         *
+         * @throws IOException if the model can't notify
+         */
+        private void hint() throws IOException {
+            this.time(Operation.HINT, () -> {
+                try {
+                    this.model.hint();
+                } catch (CancellationException e) {
+                    this.lastMessage = e.getMessage();
+                }
+            });
+        }
+
+        /**
+         * @throws IOException if the model can't notify
+         */
+        private void reset() throws IOException {
+            this.time(Operation.RESET, this.model::reset);
+            this.moves = 0;
+            this.previous = null;
+        }
+
+        /**
+         * Loads a random puzzle
+         *
+         * @throws IOException if the model can't notify
+         */
+        private void load() throws IOException {
+            int index = this.random.nextInt(this.puzzles.size());
+            this.time(Operation.LOAD, () -> this.model.load(this.puzzles.get(index), this.names.get(index)));
+            this.moves = 0;
+            this.previous = null;
+        }
+
+        /**
+         * Runs an operation, recording how long it took and what it
+         * allocated once the warm-up is over
+         *
+         * @param operation what kind of operation it is
+         * @param action    the call on the model
+         * @throws IOException if the model can't notify
+         */
+        private void time(Operation operation, Action action) throws IOException {
+            long bytes = ALLOCATION.getCurrentThreadAllocatedBytes();
+            long begin = System.nanoTime();
+            action.run();
+            long nanos = System.nanoTime() - begin;
+            bytes = ALLOCATION.getCurrentThreadAllocatedBytes() - bytes;
+            if (begin >= this.measureFrom) {
+                this.histograms.get(operation).record(nanos, bytes);
+            }
+        }
+    }
+
+    /**
+     * Only run from the command line
+     */
+    private JamLoad() {
+    }
+
+    /**
+     * Runs the players and prints the report
+     *
+     * @param args options then the game files, directories or puzzle packs to play
+     * @throws IOException if a puzzle can't be read
+     * @throws InterruptedException if interrupted while the players run
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<Strategy, Integer> mix = new LinkedHashMap<>();
+        mix.put(Strategy.RANDOM, 4);
+        mix.put(Strategy.GREEDY, 2);
+        mix.put(Strategy.OPTIMAL, 2);
+        double seconds = 10;
+        double warmup = 2;
+        long thinkMillis = 0;
+        long seed = 1;
+        JamModel.HintMode hintMode = JamModel.HintMode.SEARCH;
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--players" -> {
+                    mix.replaceAll((strategy, count) -> 0);
+                    for (String item : args[++i].split(",")) {
+                        String[] fields = item.split("=");
+                        mix.put(Strategy.valueOf(fields[0].toUpperCase()), Integer.parseInt(fields[1]));
+                    }
+                }
+                case "--seconds" -> seconds = Double.parseDouble(args[++i]);
+                case "--warmup" -> warmup = Double.parseDouble(args[++i]);
+                case "--think-ms" -> thinkMillis = Long.parseLong(args[++i]);
+                case "--hint-mode" -> hintMode = JamModel.HintMode.valueOf(args[++i].toUpperCase());
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> patterns.add(args[i]);
+            }
+        }
+        if (patterns.isEmpty()) {
+            System.out.println("Usage: java Jam --load [--players random=n,greedy=n,optimal=n] [--seconds s] "
+                    + "[--warmup s] [--think-ms ms] [--hint-mode SEARCH|DISTANCE_TABLE] [--seed n] path...");
+            return;
+        }
+
+        List<JamPuzzle> puzzles = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (Path file : JamBatch.findFiles(patterns)) {
+            if (PuzzlePack.isPack(file)) {
+                PuzzlePack pack = PuzzlePack.open(file);
+                for (int i = 0; i < pack.size(); i++) {
+                    puzzles.add(pack.get(i));
+                    names.add(file.resolve(pack.getName(i)).toString());
+                }
+            } else {
+                puzzles.add(new JamPuzzle(file.toString()));
+                names.add(file.toString());
+            }
+        }
+
+        ALLOCATION.setThreadAllocatedMemoryEnabled(true);
+        long start = System.nanoTime();
+        long measureFrom = start + (long) (warmup * 1e9);
+        long deadline = measureFrom + (long) (seconds * 1e9);
+        List<Player> players = new ArrayList<>();
+        for (Map.Entry<Strategy, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                players.add(new Player(entry.getKey(), puzzles, names, hintMode, seed + players.size(), measureFrom));
+            }
+        }
+        if (players.isEmpty()) {
+            throw new IllegalArgumentException("No players to run");
+        }
+
+        long thinkNanos = thinkMillis * 1_000_000;
+        ExecutorService threads = Executors.newFixedThreadPool(players.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Player player : players) {
+                futures.add(threads.submit(() -> {
+                    player.play(deadline, thinkNanos);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("A player failed", e.getCause());
+        } finally {
+            threads.shutdown();
+        }
+
+        report(players, mix, puzzles.size(), seconds, warmup, thinkMillis, hintMode);
+    }
+
+    /**
+     * Prints the operations per second, latency percentiles and bytes
+     * allocated of each kind of operation, then what each kind of player got done
+     *
+     * @param players     the players that ran
+     * @param mix         number of players of each kind
+     * @param numPuzzles  number of puzzles played
+     * @param seconds     how long operations were timed
+     * @param warmup      how long the players ran before timing
+     * @param thinkMillis pause after every operation
+     * @param hintMode    how hints were worked out
+     */
+    private static void report(List<Player> players, Map<Strategy, Integer> mix, int numPuzzles, double seconds,
+                               double warmup, long thinkMillis, JamModel.HintMode hintMode) {
+        System.out.printf("%d players (%s) on %d puzzles, %d cores, %.1f s timed after %.1f s warm-up, "
+                        + "%d ms thinking, hints by %s%n", players.size(), mix, numPuzzles,
+                Runtime.getRuntime().availableProcessors(), seconds, warmup, thinkMillis, hintMode);
+        System.out.printf("%-10s %12s %12s", "operation", "count", "ops/s");
+        for (double percentile : PERCENTILES) {
+            String label = percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile);
+            System.out.printf(" %10s", "p" + label + " us");
+        }
+        System.out.printf(" %10s %10s%n", "max us", "bytes/op");
+
+        Histogram all = new Histogram();
+        for (Operation operation : Operation.values()) {
+            Histogram merged = new Histogram();
+            for (Player player : players) {
+                merged.add(player.histograms.get(operation));
+            }
+            all.add(merged);
+            printRow(operation.toString(), merged, seconds);
+        }
+        printRow("all", all, seconds);
+
+        System.out.printf("%n%-10s %8s %12s %10s %12s %10s%n", "strategy", "players", "operations", "ops/s",
+                "messages", "solved");
+        for (Strategy strategy : Strategy.values()) {
+            long operations = 0;
+            long solved = 0;
+            long messages = 0;
+            int count = 0;
+            for (Player player : players) {
+                if (player.strategy == strategy) {
+                    count++;
+                    solved += player.solved;
+                    messages += player.messages;
+                    for (Histogram histogram : player.histograms.values()) {
+                        operations += histogram.total;
+                    }
+                }
+            }
+            if (count > 0) {
+                System.out.printf("%-10s %8d %12d %10.0f %12d %10d%n", strategy, count, operations,
+                        operations / seconds, messages, solved);
+            }
+        }
+    }
+
+    /**
+     * Prints the counts, percentiles and allocation of one kind of operation
+     *
+     * @param name      name of the row
+     * @param histogram timings of the operations
+     * @param seconds   how long operations were timed
+     */
+    private static void printRow(String name, Histogram histogram, double seconds) {
+        System.out.printf("%-10s %12d %12.0f", name, histogram.total, histogram.total / seconds);
+        for (double percentile : PERCENTILES) {
+            System.out.printf(" %10.1f", histogram.percentile(percentile) / 1e3);
+        }
+        System.out.printf(" %10.1f %10.0f%n", histogram.max / 1e3,
+                histogram.total == 0 ? 0.0 : (double) histogram.bytes / histogram.total);
+    }
+
+}
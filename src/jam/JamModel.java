@@ -3,25 +3,91 @@ package jam;
 import commonJam.Observer;
 import commonJam.solver.Configuration;
 import commonJam.solver.Coordinates;
+import commonJam.solver.DistanceLookup;
+import commonJam.solver.DistanceTable;
+import commonJam.solver.SolutionDatabase;
 import commonJam.solver.Solver;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
 
-import static jam.JamConfiguration.EMPTY;
 /**
  * Class for creating the JamModel which will hold the
- * needs for the game.
+ * needs for the game. The game's state is locked on the model, since
+ * background hints are applied on whatever thread the notifier runs.
  *
  * @author Andrew Photinakis
  */
 public class JamModel {
 
     /**
-     * the collection of observers of this model
+     * most configurations the hint cache remembers before dropping the least recently used
      */
-    private final List<Observer<JamModel, String>> observers = new LinkedList<>();
+    public static final int MAX_HINT_CACHE = 1 << 14;
+
+    /**
+     * longest a hint search may take unless told otherwise
+     */
+    public static final Duration DEFAULT_HINT_TIME_LIMIT = Duration.ofSeconds(30);
+
+    /**
+     * how often a model waiting for another one to build a distance table checks whether to give up
+     */
+    private static final long TABLE_WAIT_MILLIS = 10;
+
+    /**
+     * most events that may wait for an observer added without saying otherwise
+     */
+    public static final int DEFAULT_EVENT_CAPACITY = 1024;
+
+    /**
+     * runs hint searches off the thread that asked for them
+     */
+    private static final ExecutorService HINT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "jam-hint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * most distance tables kept at once before dropping the least recently used
+     */
+    public static final int MAX_DISTANCE_TABLES = 32;
+
+    /**
+     * distance tables built or being built by canonical puzzle, shared by every
+     * model playing the same puzzle. Locked on itself; tables are built outside the lock.
+     */
+    private static final Map<JamPuzzle, CompletableFuture<DistanceLookup>> DISTANCE_TABLES =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<JamPuzzle, CompletableFuture<DistanceLookup>> eldest) {
+                    return this.size() > MAX_DISTANCE_TABLES;
+                }
+            };
+
+    /**
+     * prebuilt distance tables checked before building one, null if there are none
+     */
+    private static volatile SolutionDatabase solutionDatabase;
+
+    /**
+     * the observers of this model, each with its own queue of events
+     */
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
 
     /**
      * Game states that may be used to represent different states of the game
@@ -31,22 +97,93 @@ public class JamModel {
     }
 
     /**
-     * The view calls this to add itself as an observer.
+     * Ways the model can work out hints
+     */
+    public enum HintMode {
+        /**
+         * solve from the current configuration, caching the path found
+         */
+        SEARCH,
+        /**
+         * look the next move up in a distance table of the whole puzzle, built on first use
+         */
+        DISTANCE_TABLE
+    }
+
+    /**
+     * The view calls this to add itself as an observer. It is handed
+     * only the message of each event, straight away on the thread that
+     * made it, so it can still read the model's state as the event left it.
      *
      * @param observer the view
      */
     public void addObserver(Observer<JamModel, String> observer) {
-        this.observers.add(observer);
+        this.subscribe(new Observer<>() {
+            @Override
+            public void init() throws Exception {
+                observer.init();
+            }
+
+            @Override
+            public void update(JamModel jamModel, ModelEvent event) throws IOException {
+                observer.update(jamModel, event.message());
+            }
+        }, Runnable::run, DEFAULT_EVENT_CAPACITY, false);
+    }
+
+    /**
+     * Adds an observer that is handed every event on an executor of its
+     * own, such as the JavaFX application thread for a view or the
+     * thread that made the event for a headless one. Events wait for it
+     * in a queue of their own, so a slow observer never holds up the model.
+     *
+     * @param observer the observer
+     * @param executor runs the code that hands events to the observer
+     * @param capacity most events that may wait at once, past that the oldest
+     *                 that didn't load a puzzle is dropped
+     * @param coalesce whether waiting events are dropped once a newer one supersedes them
+     * @return the observer's subscription, closed to stop listening
+     */
+    public EventSubscription subscribe(Observer<JamModel, ModelEvent> observer, Executor executor,
+                                       int capacity, boolean coalesce) {
+        EventSubscription subscription = new EventSubscription(this, observer, executor, capacity, coalesce);
+        this.subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Stops handing events to a subscription
+     *
+     * @param subscription the subscription being closed
+     */
+    void unsubscribe(EventSubscription subscription) {
+        this.subscriptions.remove(subscription);
     }
 
     /**
      * The model's state has changed (the counter), so inform the view via
      * the update method
+     *
+     * @param message the message for the player
+     * @throws IOException if the view can't be updated
+     */
+    public synchronized void notifyObservers(String message) throws IOException {
+        this.publish(ModelEvent.Type.MESSAGE, message);
+    }
+
+    /**
+     * Hands an event to every observer's queue, then puts the game back
+     * in play, since the event carries the state it was made in
+     *
+     * @param type    what kind of change the event is
+     * @param message the message for the player
      */
-    public void notifyObservers(String message) throws IOException {
-        for (Observer<JamModel, String> obs : this.observers) {
-            obs.update(this, message);
+    private void publish(ModelEvent.Type type, String message) {
+        ModelEvent event = new ModelEvent(type, this.gameState, message, this.jamConfig);
+        for (EventSubscription subscription : this.subscriptions) {
+            subscription.offer(event);
         }
+        this.gameState = GameState.ONGOING;
     }
 
     /**
@@ -57,14 +194,55 @@ public class JamModel {
      * Holds the jam configuration
      */
     private JamConfiguration jamConfig;
+    /**
+     * Holds which cells the jam config covers, moved along with it
+     */
+    private LaneOccupancy occupancy;
     /**
      * Holds the coordinates
      */
     private Coordinates cords = null;
     /**
-     * Holds the game file
+     * Holds the game file, the pack file for a puzzle out of a pack
      */
     private String gameFile;
+    /**
+     * Holds the pack the puzzle came out of, null if it was read from a file of its own
+     */
+    private PuzzlePack pack;
+    /**
+     * Holds the index of the puzzle in its pack, -1 if it isn't out of a pack
+     */
+    private int packIndex = -1;
+    /**
+     * Holds how hints are worked out, read by the hint thread
+     */
+    private volatile HintMode hintMode = HintMode.SEARCH;
+    /**
+     * Holds the longest a hint search may take
+     */
+    private Duration hintTimeLimit = DEFAULT_HINT_TIME_LIMIT;
+    /**
+     * Holds the hint being searched for in the background, null if there is none
+     */
+    private volatile CompletableFuture<JamConfiguration> pendingHint;
+    /**
+     * Holds where finished background hints are handed back to, the thread that
+     * finishes them by default, which applies them under the model's lock
+     */
+    private volatile Executor notifier = Runnable::run;
+    /**
+     * Holds the next step of a shortest solution for configurations already solved,
+     * a configuration mapped to itself has no solution. Locked on itself, since the
+     * hint thread fills it in.
+     */
+    private final Map<JamConfiguration, JamConfiguration> hintCache =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<JamConfiguration, JamConfiguration> eldest) {
+                    return this.size() > MAX_HINT_CACHE;
+                }
+            };
 
     /**
      * Constructor for the JamModel that takes in a game file
@@ -73,62 +251,520 @@ public class JamModel {
      * @throws IOException if the file is not found when inputed
      */
     public JamModel(String gameFile) throws IOException {
+        this(new JamPuzzle(gameFile), gameFile);
+    }
+
+    /**
+     * Constructor for the JamModel that plays a puzzle already read,
+     * so many models can share one puzzle
+     *
+     * @param puzzle   puzzle for the model
+     * @param gameFile file the puzzle was read from
+     */
+    public JamModel(JamPuzzle puzzle, String gameFile) {
         this.gameFile = gameFile;
-        this.jamConfig = new JamConfiguration(this.gameFile);
+        this.jamConfig = new JamConfiguration(puzzle);
+        this.occupancy = new LaneOccupancy(this.jamConfig);
         this.gameState = GameState.ONGOING;
     }
 
     /**
      * Handles the hint method. When the method is called,
      * if the current configuration state of the puzzle is
-     * solvable, the puzzle will advance to the next step.
-     * If it is not solvable, then notifyObservers is called
+     * solvable, the puzzle will advance to the next step,
+     * which slides one car as far as a player would.
+     * If it is not solvable, then notifyObservers is called.
+     * The search runs outside the model's lock, and its hint is
+     * dropped if the board changes meanwhile. A search that runs past
+     * the hint time limit publishes a message saying so instead.
      *
      * @throws IOException if the file is not valid
      */
     public void hint() throws IOException {
+        JamConfiguration from;
+        Solver solver;
+        synchronized (this) {
+            this.cancelHint();
+            if (this.jamConfig.isSolution()) {
+                this.gameState = GameState.ALREADY_SOLVED;
+                this.publish(ModelEvent.Type.MESSAGE, "Already solved!");
+                return;
+            }
+            from = this.jamConfig;
+            solver = this.newHintSolver();
+        }
+        JamConfiguration next;
+        try {
+            next = this.nextStep(from, solver);
+        } catch (CancellationException e) {
+            if (solver.hasTimedOut()) {
+                synchronized (this) {
+                    this.publish(ModelEvent.Type.MESSAGE, "No hint within " + this.hintTimeLimit.toMillis() + " ms");
+                }
+            }
+            return;
+        }
+        synchronized (this) {
+            if (from.equals(this.jamConfig)) {
+                this.applyHint(next);
+            }
+        }
+    }
+
+    /**
+     * Handles the hint method without waiting for the search. The search
+     * runs on a background thread and the hint is applied through the
+     * notifier once it is found, just as hint would have. Asking for
+     * another hint, resetting or loading cancels a search still running,
+     * and so does running past the hint time limit.
+     *
+     * @return the next configuration once the notifier has applied it,
+     * the current one if there is no solution, failing with a
+     * TimeoutException if the search runs past the hint time limit
+     * @throws IOException if the file is not valid
+     */
+    public synchronized CompletableFuture<JamConfiguration> hintAsync() throws IOException {
+        this.cancelHint();
         if (this.jamConfig.isSolution()) {
             this.gameState = GameState.ALREADY_SOLVED;
-            this.notifyObservers("Already solved!");
+            this.publish(ModelEvent.Type.MESSAGE, "Already solved!");
+            return CompletableFuture.completedFuture(this.jamConfig);
+        }
+
+        JamConfiguration from = this.jamConfig;
+        Solver solver = this.newHintSolver();
+        CompletableFuture<JamConfiguration> future = new CompletableFuture<>();
+        this.pendingHint = future;
+        future.whenComplete((next, error) -> {
+            if (future.isCancelled()) {
+                solver.cancel();
+            }
+        });
+        HINT_EXECUTOR.execute(() -> this.searchHint(future, from, solver));
+        this.publish(ModelEvent.Type.MESSAGE, "Looking for a hint...");
+        return future;
+    }
+
+    /**
+     * Searches for a background hint, then hands it to the notifier to
+     * be applied, completing the hint's future afterwards
+     *
+     * @param future the hint's future
+     * @param from   the configuration the hint was asked for
+     * @param solver searches if the answer isn't known already
+     */
+    private void searchHint(CompletableFuture<JamConfiguration> future, JamConfiguration from, Solver solver) {
+        JamConfiguration found = null;
+        Throwable failure = null;
+        try {
+            found = this.nextStep(from, solver);
+        } catch (CancellationException e) {
+            failure = solver.hasTimedOut() ? new TimeoutException(e.getMessage()) : e;
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        if (future.isCancelled()) {
+            return;
+        }
+        JamConfiguration next = found;
+        Throwable error = failure;
+        this.notifier.execute(() -> {
+            this.finishHint(future, from, next, error, solver);
+            if (error == null) {
+                future.complete(next);
+            } else {
+                future.completeExceptionally(error);
+            }
+        });
+    }
+
+    /**
+     * Applies a background hint once it is found, unless it has been
+     * cancelled or the board has changed since it was asked for
+     *
+     * @param future the hint's future
+     * @param from   the configuration the hint was asked for
+     * @param next   the next configuration, null if the search failed
+     * @param error  why the search failed, null if it didn't
+     * @param solver the solver that searched
+     */
+    private synchronized void finishHint(CompletableFuture<JamConfiguration> future, JamConfiguration from,
+                                         JamConfiguration next, Throwable error, Solver solver) {
+        if (future != this.pendingHint) {
+            return;
+        }
+        this.pendingHint = null;
+        try {
+            if (error == null) {
+                if (from.equals(this.jamConfig)) {
+                    this.applyHint(next);
+                }
+            } else if (solver.hasTimedOut()) {
+                this.publish(ModelEvent.Type.MESSAGE, "No hint within " + this.hintTimeLimit.toMillis() + " ms");
+            } else if (!(unwrap(error) instanceof CancellationException)) {
+                this.publish(ModelEvent.Type.MESSAGE, "Hint failed: " + unwrap(error).getMessage());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the cause of a CompletionException, the error itself otherwise
+     */
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Moves to the next step of a hint
+     *
+     * @param next the next configuration, the current one if there is no solution
+     * @throws IOException if the file is not valid
+     */
+    private void applyHint(JamConfiguration next) throws IOException {
+        if (next.equals(this.jamConfig)) {
+            this.publish(ModelEvent.Type.MESSAGE, "No solution");
         } else {
-            Solver solver = new Solver();
-            List<Configuration> configurationCollection = solver.solve(this.jamConfig);
-            if(configurationCollection.isEmpty()){
-                this.notifyObservers("No solution");
-            }else{
-                this.jamConfig = (JamConfiguration) configurationCollection.get(1);
-                this.gameState = GameState.HINT;
-                this.notifyObservers("Next Step!");
+            this.jamConfig = next;
+            this.occupancy = new LaneOccupancy(next);
+            this.gameState = GameState.HINT;
+            this.publish(ModelEvent.Type.BOARD, "Next Step!");
+        }
+    }
+
+    /**
+     * Cancels the hint being searched for in the background, if there is one
+     */
+    public synchronized void cancelHint() {
+        CompletableFuture<JamConfiguration> pending = this.pendingHint;
+        this.pendingHint = null;
+        if (pending != null) {
+            pending.cancel(true);
+        }
+    }
+
+    /**
+     * @return true while a hint is being searched for in the background
+     */
+    public synchronized boolean isHintPending() {
+        return this.pendingHint != null;
+    }
+
+    /**
+     * @return a solver for one hint, held to the hint time limit
+     */
+    private Solver newHintSolver() {
+        Solver solver = new Solver(Solver.MoveModel.SLIDE, Solver.Strategy.A_STAR);
+        solver.setTimeLimit(this.hintTimeLimit);
+        return solver;
+    }
+
+    /**
+     * Finds the next step of a shortest solution from the configuration.
+     * Every configuration on a solved path is cached along with the step
+     * after it, so following the hints, or making the same moves by hand,
+     * is answered from the cache without solving again.
+     *
+     * @param config the configuration to move on from
+     * @param solver searches if the answer isn't known already
+     * @return the next configuration, or the same one if there is no solution
+     */
+    private JamConfiguration nextStep(JamConfiguration config, Solver solver) {
+        if (this.hintMode == HintMode.DISTANCE_TABLE && config.isPackable()) {
+            DistanceLookup table = distanceTableOf(config.getPuzzle(), solver.watchTimeLimit());
+            JamConfiguration next = (JamConfiguration) table.bestMove(config);
+            return next == null ? config : next;
+        }
+        JamConfiguration next;
+        synchronized (this.hintCache) {
+            next = this.hintCache.get(config);
+        }
+        if (next == null) {
+            List<Configuration> path = solver.solve(config);
+            synchronized (this.hintCache) {
+                if (path.isEmpty()) {
+                    this.hintCache.put(config, config);
+                }
+                for (int i = 0; i + 1 < path.size(); i++) {
+                    this.hintCache.put((JamConfiguration) path.get(i), (JamConfiguration) path.get(i + 1));
+                }
+                next = this.hintCache.getOrDefault(config, config);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Gets the distance table for the puzzle being played. It comes from the
+     * solution database if one is in use and has the puzzle, otherwise it is
+     * built the first time any model asks for it. Tables are kept per
+     * canonical puzzle, so every model playing a puzzle that only differs
+     * by the names of its blocker cars shares the same table, and only the
+     * MAX_DISTANCE_TABLES used last are kept.
+     *
+     * @return the distance table of the current puzzle
+     */
+    public DistanceLookup getDistanceTable() {
+        return distanceTableOf(this.getConfig().getPuzzle(), () -> false);
+    }
+
+    /**
+     * Gets a shared distance table, building it if no model has yet. The
+     * first model to ask builds it outside the lock and any other model
+     * asking meanwhile waits for it, either giving up once told to stop.
+     * If the model building gives up, a model still waiting builds it instead.
+     *
+     * @param puzzle the puzzle to get the table of
+     * @param stop   true once the caller should give up
+     * @return the distance table of the puzzle, shared by every model
+     * @throws CancellationException if told to stop before the table was ready
+     */
+    private static DistanceLookup distanceTableOf(JamPuzzle puzzle, BooleanSupplier stop) {
+        JamPuzzle key = puzzle.canonical();
+        while (true) {
+            CompletableFuture<DistanceLookup> table;
+            boolean building = false;
+            synchronized (DISTANCE_TABLES) {
+                table = DISTANCE_TABLES.get(key);
+                if (table == null) {
+                    table = new CompletableFuture<>();
+                    DISTANCE_TABLES.put(key, table);
+                    building = true;
+                }
+            }
+            if (building) {
+                try {
+                    table.complete(buildDistanceTable(key, stop));
+                } catch (RuntimeException | Error e) {
+                    synchronized (DISTANCE_TABLES) {
+                        DISTANCE_TABLES.remove(key, table);
+                    }
+                    table.completeExceptionally(e);
+                    throw e;
+                }
+            }
+            DistanceLookup found = awaitDistanceTable(table, stop);
+            if (found != null) {
+                return found;
+            }
+        }
+    }
+
+    /**
+     * Waits for a table another model is building
+     *
+     * @param table the table being built
+     * @param stop  true once the caller should give up
+     * @return the table, null if the model building it gave up
+     * @throws CancellationException if told to stop before the table was ready
+     */
+    private static DistanceLookup awaitDistanceTable(CompletableFuture<DistanceLookup> table, BooleanSupplier stop) {
+        while (true) {
+            try {
+                return table.get(TABLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (stop.getAsBoolean()) {
+                    throw new CancellationException("Gave up waiting for the distance table");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted waiting for the distance table");
+            } catch (CancellationException e) {
+                /** the model building it gave up, which get throws as it is rather than wrapped */
+                return null;
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : new CompletionException(e.getCause());
             }
         }
     }
 
+    /**
+     * Looks a table up in the solution database, building it if it isn't there
+     *
+     * @param puzzle the canonical puzzle
+     * @param stop   true once the build should be given up
+     * @return the distance table, answering for any puzzle with the same canonical form
+     */
+    private static DistanceLookup buildDistanceTable(JamPuzzle puzzle, BooleanSupplier stop) {
+        SolutionDatabase database = solutionDatabase;
+        DistanceLookup table = database == null ? null : database.find(puzzle.getFingerprint(), Solver.MoveModel.SLIDE);
+        return new CanonicalLookup(table != null ? table
+                : DistanceTable.build(new JamConfiguration(puzzle), Solver.MoveModel.SLIDE, stop));
+    }
+
+    /**
+     * Looks distance tables up in a solution database from now on, before
+     * building them. Tables already handed out are kept.
+     *
+     * @param database the database to use, null to always build tables
+     */
+    public static void useSolutionDatabase(SolutionDatabase database) {
+        solutionDatabase = database;
+    }
+
+    /**
+     * Can the current configuration still be solved?
+     * Answered from the distance table.
+     *
+     * @return true if a solution can still be reached
+     */
+    public boolean isSolvable() {
+        JamConfiguration config = this.getConfig();
+        return distanceTableOf(config.getPuzzle(), () -> false).isSolvable(config);
+    }
+
+    /**
+     * @return fewest moves left to solve the current configuration, or
+     * DistanceLookup.UNSOLVABLE, answered from the distance table
+     */
+    public int getMovesToSolve() {
+        JamConfiguration config = this.getConfig();
+        return distanceTableOf(config.getPuzzle(), () -> false).distanceOf(config);
+    }
+
+    /**
+     * @param hintMode how hints should be worked out from now on
+     */
+    public void setHintMode(HintMode hintMode) {
+        this.hintMode = hintMode;
+    }
+
+    /**
+     * @return how hints are worked out
+     */
+    public HintMode getHintMode() {
+        return this.hintMode;
+    }
+
+    /**
+     * @param hintTimeLimit longest a hint search may take from now on
+     */
+    public synchronized void setHintTimeLimit(Duration hintTimeLimit) {
+        this.hintTimeLimit = hintTimeLimit;
+    }
+
+    /**
+     * @return longest a hint search may take
+     */
+    public synchronized Duration getHintTimeLimit() {
+        return this.hintTimeLimit;
+    }
+
+    /**
+     * Sets where finished background hints are handed back to, so the
+     * observers can be updated on the thread they expect, such as the
+     * JavaFX application thread
+     *
+     * @param notifier runs the code that applies a finished hint
+     */
+    public void setNotifier(Executor notifier) {
+        this.notifier = notifier;
+    }
+
     /**
      * Handles the load method. When the method is called,
      * a file name is passed in to be the new game file.
      * If the file is not valid and can't be loaded,
      * that will be notified. Else, the file will be loaded,
      * the jam config will be updated and so will the board.
+     * Loading the same puzzle again, as reset does, keeps the
+     * hint cache; any other puzzle clears it. Either way a hint
+     * still being searched for is cancelled.
      *
      * @param filename game file to be changed to
      * @throws IOException if the file is not valid
      */
-    public void load(String filename) throws IOException {
+    public synchronized void load(String filename) throws IOException {
+        JamPuzzle puzzle;
         try {
-            this.jamConfig = new JamConfiguration(filename);
-            this.gameState = GameState.LOADING;
-            String[] gameFileSplit = filename.split("/");
-            this.gameFile = filename;
-            this.notifyObservers("Loaded: " + gameFileSplit[gameFileSplit.length - 1]);
+            puzzle = new JamPuzzle(filename);
         } catch (Exception e) {
-            this.notifyObservers("Failed to load: " + filename);
+            this.cancelHint();
+            this.publish(ModelEvent.Type.MESSAGE, "Failed to load: " + filename);
+            return;
         }
+        this.load(puzzle, filename);
+    }
+
+    /**
+     * Handles the load method for a puzzle out of a puzzle pack, picked
+     * by its index and listed by its name in the pack
+     *
+     * @param pack  the puzzle pack
+     * @param index index of the puzzle in the pack
+     * @throws IOException if the file is not valid
+     */
+    public synchronized void load(PuzzlePack pack, int index) throws IOException {
+        JamPuzzle puzzle;
+        try {
+            puzzle = pack.get(index);
+        } catch (Exception e) {
+            this.cancelHint();
+            this.publish(ModelEvent.Type.MESSAGE, "Failed to load: " + pack.getFile() + " #" + index);
+            return;
+        }
+        this.load(puzzle, pack.getFile().toString(), pack, index);
+    }
+
+    /**
+     * Handles the load method for a puzzle already read, the same way
+     * as loading it from its file
+     *
+     * @param puzzle   puzzle to be changed to
+     * @param filename game file the puzzle was read from
+     * @throws IOException if the file is not valid
+     */
+    public synchronized void load(JamPuzzle puzzle, String filename) throws IOException {
+        this.load(puzzle, filename, null, -1);
+    }
+
+    /**
+     * Loads a puzzle already read, remembering where it came from
+     *
+     * @param puzzle    puzzle to be changed to
+     * @param filename  game file the puzzle was read from, the pack file for a puzzle out of a pack
+     * @param pack      the pack the puzzle came out of, null if it has a file of its own
+     * @param packIndex index of the puzzle in its pack, -1 if it isn't out of a pack
+     */
+    private void load(JamPuzzle puzzle, String filename, PuzzlePack pack, int packIndex) {
+        this.cancelHint();
+        if (puzzle.equals(this.jamConfig.getPuzzle())) {
+            puzzle = this.jamConfig.getPuzzle();
+        } else {
+            synchronized (this.hintCache) {
+                this.hintCache.clear();
+            }
+        }
+        this.jamConfig = new JamConfiguration(puzzle);
+        this.occupancy = new LaneOccupancy(this.jamConfig);
+        this.cords = null;
+        this.gameState = GameState.LOADING;
+        this.gameFile = filename;
+        this.pack = pack;
+        this.packIndex = packIndex;
+        this.publish(ModelEvent.Type.LOADED, "Loaded: " + this.getPuzzleName());
+    }
+
+    /**
+     * @return the name of the puzzle's file, or the name it is listed by in its pack
+     */
+    private String getPuzzleName() {
+        if (this.pack != null) {
+            return this.pack.getName(this.packIndex);
+        }
+        String[] gameFileSplit = this.gameFile.split("/");
+        return gameFileSplit[gameFileSplit.length - 1];
     }
 
     /**
      * Sets the game state to Ongoing
+     *
+     * @deprecated every event puts the game back in play once it is made,
+     * so there is nothing left to set; read the state off ModelEvent.state()
      */
-    public void setGameStateONGOING() {
+    @Deprecated
+    public synchronized void setGameStateONGOING() {
         this.gameState = GameState.ONGOING;
     }
 
@@ -136,13 +772,15 @@ public class JamModel {
      * Resets the puzzle by loading it first,
      * then setting the gamestate to reset and
      * notifying observers of the puzzle reset.
+     * The puzzle never changes, so it is loaded
+     * again without reading its file.
      *
      * @throws IOException if the file is not valid
      */
-    public void reset() throws IOException {
-        this.load(this.gameFile);
+    public synchronized void reset() throws IOException {
+        this.load(this.jamConfig.getPuzzle(), this.gameFile, this.pack, this.packIndex);
         this.gameState = GameState.RESET;
-        this.notifyObservers("Puzzle reset! ");
+        this.publish(ModelEvent.Type.BOARD, "Puzzle reset! ");
     }
 
     /**
@@ -152,138 +790,60 @@ public class JamModel {
      *
      * @throws IOException if the file is not valid
      */
-    public void quit() throws IOException {
+    public synchronized void quit() throws IOException {
         this.gameState = GameState.QUIT;
-        this.notifyObservers("Quitting the game...Come back soon!");
+        this.publish(ModelEvent.Type.MESSAGE, "Quitting the game...Come back soon!");
         System.exit(0);
     }
 
     /**
-     * Selection handles selecting the cars to move.
+     * Selection handles selecting the cars to move. How far the car
+     * picked can slide either way is read off the occupancy of its
+     * lane, and the occupancy is moved along with the car.
      *
      * @param xCord row of the char on the game board
      * @param yCord column of the char on the game board
      * @throws IOException if the file is not valid
      */
-    public void selection(int xCord, int yCord) throws IOException {
+    public synchronized void selection(int xCord, int yCord) throws IOException {
         if (this.gameState == GameState.ONGOING && cords == null) {
             Coordinates guessCords = new Coordinates(xCord, yCord);
-            if (this.jamConfig.gameBoard[guessCords.getRow()][guessCords.getCol()] == EMPTY) {
-                this.notifyObservers("No car at " + guessCords);
+            if (this.occupancy.carAt(guessCords.getRow(), guessCords.getCol()) < 0) {
+                this.publish(ModelEvent.Type.MESSAGE, "No car at " + guessCords);
             } else {
                 cords = guessCords;
-                this.notifyObservers("Selected " + guessCords);
+                this.publish(ModelEvent.Type.MESSAGE, "Selected " + guessCords);
             }
         } else if (this.gameState == GameState.ONGOING) {
             Coordinates secondCords = new Coordinates(xCord, yCord);
-            String car = String.valueOf(this.jamConfig.gameBoard[cords.getRow()][cords.getCol()]);
-            Car curr = this.jamConfig.stringCarTreeMap.get(car);
-
-            if (curr.movesSideways()) {
-                for (int col = curr.getStartingCol(); col <= secondCords.getCol(); col++) {
-                    if (this.jamConfig.gameBoard[curr.getStartingRow()][col] != EMPTY
-                            && this.jamConfig.gameBoard[curr.getStartingRow()][col] != curr.getCarName().charAt(0)) {
-                        this.notifyObservers("Can't move from " + cords + " to " + secondCords);
-                        cords = null;
-                        return;
-                    }
-                }
-
-                for (int col = curr.getStartingCol(); col >= secondCords.getCol(); col--) {
-                    if (this.jamConfig.gameBoard[curr.getStartingRow()][col] != EMPTY
-                            && this.jamConfig.gameBoard[curr.getStartingRow()][col] != curr.getCarName().charAt(0)) {
-                        this.notifyObservers("Can't move from " + cords + " to " + secondCords);
-                        cords = null;
-                        return;
-                    }
-                }
-
-                if (cords.getRow() != secondCords.getRow()) {
-                    this.notifyObservers("Can't move from " + cords + " to " + secondCords);
-                    cords = null;
-                    return;
-                }
-
-                ArrayList<Coordinates> currCarCords = this.jamConfig.getAllCarCoordinates(curr);
-                Coordinates firstCurrCords = currCarCords.get(0);
-                Coordinates lastingCurrCords = currCarCords.get(currCarCords.size() - 1);
-                ArrayList<Coordinates> toPassIn = new ArrayList<>();
-
-                if (secondCords.getCol() < firstCurrCords.getCol()) {
-                    int distanceToMove = firstCurrCords.getCol() - secondCords.getCol();
-                    for (Coordinates currCord : currCarCords) {
-                        int row = currCord.getRow();
-                        int col = currCord.getCol() - distanceToMove;
-                        toPassIn.add(new Coordinates(row, col));
-                    }
-                    this.jamConfig = new JamConfiguration(this.jamConfig, curr, toPassIn);
-                    toPassIn.clear();
-                } else if (secondCords.getCol() > lastingCurrCords.getCol()) {
-                    int distanceToMove = secondCords.getCol() - lastingCurrCords.getCol();
-                    for (Coordinates currCord : currCarCords) {
-                        int row = currCord.getRow();
-                        int col = currCord.getCol() + distanceToMove;
-                        toPassIn.add(new Coordinates(row, col));
-                    }
-                    this.jamConfig = new JamConfiguration(this.jamConfig, curr, toPassIn);
-                    toPassIn.clear();
-                }
-                this.notifyObservers("Moved from " + cords + " to " + secondCords);
-
-            } else if (!curr.movesSideways()) {
-                for (int row = curr.getStartingRow(); row <= secondCords.getRow(); row++) {
-                    if (this.jamConfig.gameBoard[row][curr.getStartingCol()] != EMPTY
-                            && this.jamConfig.gameBoard[row][curr.getStartingCol()] != curr.getCarName().charAt(0)) {
-                        this.notifyObservers("Can't move from " + cords + " to " + secondCords);
-                        cords = null;
-                        return;
-                    }
-                }
-
-                for(int row = curr.getStartingRow(); row >= secondCords.getRow(); row--){
-                    if (this.jamConfig.gameBoard[row][curr.getStartingCol()] != EMPTY
-                            && this.jamConfig.gameBoard[row][curr.getStartingCol()] != curr.getCarName().charAt(0)) {
-                        this.notifyObservers("Can't move from " + cords + " to " + secondCords);
-                        cords = null;
-                        return;
-                    }
-                }
-
-
-                if (cords.getCol() != secondCords.getCol()) {
-                    this.notifyObservers("Can't move from " + cords + " to " + secondCords);
-                    cords = null;
-                    return;
-                }
-
-
-
-                ArrayList<Coordinates> currCarCords = this.jamConfig.getAllCarCoordinates(curr);
-                Coordinates firstCurrCords = currCarCords.get(0);
-                Coordinates lastingCurrCords = currCarCords.get(currCarCords.size() - 1);
-                ArrayList<Coordinates> toPassIn = new ArrayList<>();
+            JamPuzzle puzzle = this.jamConfig.getPuzzle();
+            int car = this.occupancy.carAt(cords.getRow(), cords.getCol());
+            if (car < 0) {
+                /** a hint moved the car picked off its cell */
+                this.publish(ModelEvent.Type.MESSAGE, "Can't move from " + cords + " to " + secondCords);
+                cords = null;
+                return;
+            }
+            boolean sideways = puzzle.movesSideways(car);
+            int length = puzzle.getLength(car);
+            int first = this.jamConfig.getPosition(car);
+            int target = sideways ? secondCords.getCol() : secondCords.getRow();
+
+            /** the target has to be in the car's lane, within the cells it can slide over */
+            if ((sideways ? secondCords.getRow() : secondCords.getCol()) != puzzle.getLane(car)
+                    || target < this.occupancy.lowestPosition(car, first)
+                    || target >= this.occupancy.highestPosition(car, first) + length) {
+                this.publish(ModelEvent.Type.MESSAGE, "Can't move from " + cords + " to " + secondCords);
+                cords = null;
+                return;
+            }
 
-                if (secondCords.getRow() < firstCurrCords.getRow()) {
-                    int distanceToMove = firstCurrCords.getRow() - secondCords.getRow();
-                    for (Coordinates currCord : currCarCords) {
-                        int row = currCord.getRow() - distanceToMove;
-                        int col = currCord.getCol();
-                        toPassIn.add(new Coordinates(row, col));
-                    }
-                    this.jamConfig = new JamConfiguration(this.jamConfig, curr, toPassIn);
-                    toPassIn.clear();
-                } else if (secondCords.getRow() > lastingCurrCords.getRow()) {
-                    int distanceToMove = secondCords.getRow() - lastingCurrCords.getRow();
-                    for (Coordinates currCord : currCarCords) {
-                        int row = currCord.getRow() + distanceToMove;
-                        int col = currCord.getCol();
-                        toPassIn.add(new Coordinates(row, col));
-                    }
-                    this.jamConfig = new JamConfiguration(this.jamConfig, curr, toPassIn);
-                    toPassIn.clear();
-                }
-                this.notifyObservers("Moved from " + cords + " to " + secondCords);
+            int position = target < first ? target : target >= first + length ? target - length + 1 : first;
+            if (position != first) {
+                this.occupancy.move(car, first, position);
+                this.jamConfig = this.jamConfig.moveCar(car, position);
             }
+            this.publish(ModelEvent.Type.BOARD, "Moved from " + cords + " to " + secondCords);
             cords = null;
         }
     }
@@ -291,28 +851,31 @@ public class JamModel {
     /**
      * @return the number of rows in the jam config
      */
-    public int getThisConfigRows() {
+    public synchronized int getThisConfigRows() {
         return this.jamConfig.getNumRows();
     }
 
     /**
      * @return the number of columns in the jam config
      */
-    public int getThisConfigCols() {
+    public synchronized int getThisConfigCols() {
         return this.jamConfig.getNumCols();
     }
 
     /**
      * @return the instance of the jamcConfig
      */
-    public JamConfiguration getConfig() {
+    public synchronized JamConfiguration getConfig() {
         return this.jamConfig;
     }
 
     /**
-     * @return the game state of the game
+     * @return the game state of the game, always ONGOING between events
+     * @deprecated the state only lasts while an event is made, so read it
+     * off the event with ModelEvent.state() instead
      */
-    public GameState getGameState() {
+    @Deprecated
+    public synchronized GameState getGameState() {
         return this.gameState;
     }
 
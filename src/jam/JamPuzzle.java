@@ -0,0 +1,598 @@
+package jam;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * Immutable description of a Jam puzzle as read from a game file.
+ * It holds the board size and the fixed geometry of every car
+ * (orientation, length and the lane it is locked into), indexed by
+ * car in name order. The only thing that changes from one
+ * configuration to the next is where each car sits in its lane, so
+ * this class also owns the bit layout that packs those positions
+ * into a long (or a few longs for very large boards).
+ *
+ * @author Andrew Photinakis
+ */
+public final class JamPuzzle {
+
+    /**
+     * seed of the random keys configurations are hashed with, fixed so equal puzzles hash alike
+     */
+    private static final long ZOBRIST_SEED = 0x4A414D5A4F425249L;
+    /**
+     * number of bits in one packed word
+     */
+    private static final int WORD_BITS = Long.SIZE;
+    /**
+     * name of the car that has to reach the right edge
+     */
+    public static final String GOAL_CAR = "X";
+
+    /**
+     * game board number of rows
+     */
+    private final int numRows;
+    /**
+     * game board number of columns
+     */
+    private final int numCols;
+    /**
+     * car names, in name order
+     */
+    private final String[] names;
+    /**
+     * char drawn on the board for each car
+     */
+    private final char[] symbols;
+    /**
+     * does the car move sideways?
+     */
+    private final boolean[] sideways;
+    /**
+     * fixed row of a sideways car, fixed column otherwise
+     */
+    private final int[] lanes;
+    /**
+     * number of cells each car covers
+     */
+    private final int[] lengths;
+    /**
+     * which packed word holds each car position
+     */
+    private final int[] words;
+    /**
+     * bit offset of each car position inside its word
+     */
+    private final int[] shifts;
+    /**
+     * mask for each car position once shifted down
+     */
+    private final long[] masks;
+    /**
+     * number of longs needed to pack one configuration
+     */
+    private final int numWords;
+    /**
+     * random key for each car at each position, the keys of a car starting at its offset
+     */
+    private final long[] zobristKeys;
+    /**
+     * where the keys of each car start in zobristKeys
+     */
+    private final int[] zobristOffsets;
+    /**
+     * Zobrist hash of the starting configuration
+     */
+    private final long startZobrist;
+    /**
+     * car index for each board symbol, -1 where no car uses the symbol
+     */
+    private final int[] symbolIndex;
+    /**
+     * index of the X car
+     */
+    private final int goalIndex;
+    /**
+     * packed car positions read from the file
+     */
+    private final long[] startWords;
+    /**
+     * the same puzzle with the blocker cars renamed in a fixed order, made when first asked for
+     */
+    private volatile JamPuzzle canonical;
+    /**
+     * index in this puzzle of each car of the canonical puzzle
+     */
+    private int[] canonicalCars;
+
+    /**
+     * Reads the game file. The first line holds the board size, the
+     * second the number of cars and every line after that describes
+     * one car by name, starting row/col and ending row/col.
+     *
+     * @param filename game file that is passed in
+     * @throws IOException for a potential FileNotFoundException
+     */
+    public JamPuzzle(String filename) throws IOException {
+        this(read(filename));
+        if (this.goalIndex < 0) {
+            throw new IOException("No " + GOAL_CAR + " car in " + filename);
+        }
+    }
+
+    /**
+     * Makes a puzzle out of cars already read, as a puzzle pack does
+     *
+     * @param numRows game board number of rows
+     * @param numCols game board number of columns
+     * @param cars    the cars, in name order
+     * @param source  where the cars were read from, for errors
+     * @return the puzzle
+     * @throws IOException if the cars aren't in name order or there is no X car
+     */
+    static JamPuzzle of(int numRows, int numCols, List<Car> cars, String source) throws IOException {
+        for (int i = 1; i < cars.size(); i++) {
+            if (cars.get(i - 1).getCarName().compareTo(cars.get(i).getCarName()) >= 0) {
+                throw new IOException("Cars out of name order in " + source);
+            }
+        }
+        JamPuzzle puzzle = new JamPuzzle(new Board(numRows, numCols, cars));
+        if (puzzle.goalIndex < 0) {
+            throw new IOException("No " + GOAL_CAR + " car in " + source);
+        }
+        return puzzle;
+    }
+
+    /**
+     * Reads the board size and the cars out of a game file
+     *
+     * @param filename game file that is passed in
+     * @return the board read from the file
+     * @throws IOException for a potential FileNotFoundException
+     */
+    private static Board read(String filename) throws IOException {
+        TreeMap<String, Car> stringCarTreeMap = new TreeMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+            String[] fields = br.readLine().split(" ");
+            int numRows = Integer.parseInt(fields[0]);
+            int numCols = Integer.parseInt(fields[1]);
+            br.readLine();
+
+            String line;
+            String[] lineSplited;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                lineSplited = line.split(" ");
+                Car car = new Car(lineSplited[0], Integer.parseInt(lineSplited[1]),
+                        Integer.parseInt(lineSplited[2]), Integer.parseInt(lineSplited[3]),
+                        Integer.parseInt(lineSplited[4]));
+                stringCarTreeMap.put(car.getCarName(), car);
+            }
+            return new Board(numRows, numCols, stringCarTreeMap.values());
+        }
+    }
+
+    /**
+     * Lays out the puzzle for a board. The goal index is left at -1 if
+     * there is no X car.
+     *
+     * @param board the board size and its cars in name order
+     */
+    private JamPuzzle(Board board) {
+        this.numRows = board.numRows();
+        this.numCols = board.numCols();
+        int numCars = board.cars().size();
+        this.names = new String[numCars];
+        this.symbols = new char[numCars];
+        this.sideways = new boolean[numCars];
+        this.lanes = new int[numCars];
+        this.lengths = new int[numCars];
+        this.words = new int[numCars];
+        this.shifts = new int[numCars];
+        this.masks = new long[numCars];
+        int[] starts = new int[numCars];
+
+        /** lays out each car position in the next free bits, never splitting one across two words */
+        int index = 0;
+        int word = 0;
+        int shift = 0;
+        int goal = -1;
+        for (Car car : board.cars()) {
+            this.names[index] = car.getCarName();
+            this.symbols[index] = car.getCarName().charAt(0);
+            this.sideways[index] = car.movesSideways();
+            if (car.movesSideways()) {
+                this.lanes[index] = car.getStartingRow();
+                this.lengths[index] = car.getEndingCol() - car.getStartingCol() + 1;
+                starts[index] = car.getStartingCol();
+            } else {
+                this.lanes[index] = car.getStartingCol();
+                this.lengths[index] = car.getEndingRow() - car.getStartingRow() + 1;
+                starts[index] = car.getStartingRow();
+            }
+            int bits = WORD_BITS - Long.numberOfLeadingZeros(this.getMaxPosition(index));
+            if (shift + bits > WORD_BITS) {
+                word++;
+                shift = 0;
+            }
+            this.words[index] = word;
+            this.shifts[index] = shift;
+            this.masks[index] = (1L << bits) - 1;
+            shift += bits;
+            if (car.getCarName().equals(GOAL_CAR)) {
+                goal = index;
+            }
+            index++;
+        }
+        this.goalIndex = goal;
+        this.numWords = word + 1;
+
+        char maxSymbol = 0;
+        for (char symbol : this.symbols) {
+            maxSymbol = (char) Math.max(maxSymbol, symbol);
+        }
+        this.symbolIndex = new int[maxSymbol + 1];
+        Arrays.fill(this.symbolIndex, -1);
+        for (int i = numCars - 1; i >= 0; i--) {
+            this.symbolIndex[this.symbols[i]] = i;
+        }
+
+        this.startWords = this.pack(starts);
+
+        this.zobristOffsets = new int[numCars];
+        int numKeys = 0;
+        for (int i = 0; i < numCars; i++) {
+            this.zobristOffsets[i] = numKeys;
+            numKeys += this.getMaxPosition(i) + 1;
+        }
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        this.zobristKeys = new long[numKeys];
+        Arrays.setAll(this.zobristKeys, i -> random.nextLong());
+        this.startZobrist = this.zobrist(starts);
+    }
+
+    /**
+     * Two puzzles are equal if they have the same board size and the
+     * same cars starting in the same places
+     *
+     * @param other the other puzzle
+     * @return true if equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object other) {
+        boolean result = false;
+        if (other instanceof JamPuzzle otherPuzzle) {
+            result = this.numRows == otherPuzzle.numRows
+                    && this.numCols == otherPuzzle.numCols
+                    && Arrays.equals(this.names, otherPuzzle.names)
+                    && Arrays.equals(this.sideways, otherPuzzle.sideways)
+                    && Arrays.equals(this.lanes, otherPuzzle.lanes)
+                    && Arrays.equals(this.lengths, otherPuzzle.lengths)
+                    && Arrays.equals(this.startWords, otherPuzzle.startWords);
+        }
+        return result;
+    }
+
+    /**
+     * @return int hashcode of the board size, cars and starting positions
+     */
+    @Override
+    public int hashCode() {
+        int result = 31 * this.numRows + this.numCols;
+        result = 31 * result + Arrays.hashCode(this.names);
+        result = 31 * result + Arrays.hashCode(this.lanes);
+        result = 31 * result + Arrays.hashCode(this.lengths);
+        return 31 * result + Arrays.hashCode(this.startWords);
+    }
+
+    /**
+     * Works out a 64 bit FNV-1a hash of the board size, the cars and their
+     * starting positions. Unlike hashCode it is spelled out here, so it stays
+     * the same between runs and can key puzzles in files.
+     *
+     * @return the puzzle's fingerprint
+     */
+    public long getFingerprint() {
+        long hash = 0xCBF29CE484222325L;
+        hash = fingerprint(hash, this.numRows);
+        hash = fingerprint(hash, this.numCols);
+        for (int car = 0; car < this.names.length; car++) {
+            for (int i = 0; i < this.names[car].length(); i++) {
+                hash = fingerprint(hash, this.names[car].charAt(i));
+            }
+            hash = fingerprint(hash, this.sideways[car] ? 1 : 0);
+            hash = fingerprint(hash, this.lanes[car]);
+            hash = fingerprint(hash, this.lengths[car]);
+        }
+        for (long word : this.startWords) {
+            hash = fingerprint(hash, (int) word);
+            hash = fingerprint(hash, (int) (word >>> 32));
+        }
+        return hash;
+    }
+
+    /**
+     * Mixes the four bytes of a value into an FNV-1a hash
+     */
+    private static long fingerprint(long hash, int value) {
+        for (int i = 0; i < Integer.BYTES; i++) {
+            hash ^= (value >>> (8 * i)) & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Gets the canonical form of this puzzle. Blocker cars only differ
+     * by their names, so the canonical puzzle keeps the X car and gives
+     * the others names in order of orientation, lane, starting place and
+     * length. Puzzles that are the same up to renaming blockers have
+     * equal canonical puzzles, which lets them share distance tables.
+     *
+     * @return the canonical puzzle, this one if it already is canonical
+     */
+    public JamPuzzle canonical() {
+        JamPuzzle result = this.canonical;
+        if (result == null) {
+            List<Integer> order = new ArrayList<>();
+            for (int car = 0; car < this.names.length; car++) {
+                if (car != this.goalIndex) {
+                    order.add(car);
+                }
+            }
+            order.sort(Comparator.<Integer>comparingInt(car -> this.sideways[car] ? 0 : 1)
+                    .thenComparingInt(car -> this.lanes[car])
+                    .thenComparingInt(this::getStartPosition)
+                    .thenComparingInt(car -> this.lengths[car]));
+            order.add(0, this.goalIndex);
+
+            /** the X car sorts before the lower case names the blockers are given */
+            List<Car> cars = new ArrayList<>();
+            for (int i = 0; i < order.size(); i++) {
+                int car = order.get(i);
+                String name = i == 0 ? GOAL_CAR : String.valueOf((char) ('a' + i - 1));
+                int first = this.getStartPosition(car);
+                int last = first + this.lengths[car] - 1;
+                cars.add(this.sideways[car]
+                        ? new Car(name, this.lanes[car], first, this.lanes[car], last)
+                        : new Car(name, first, this.lanes[car], last, this.lanes[car]));
+            }
+            result = new JamPuzzle(new Board(this.numRows, this.numCols, cars));
+            this.canonicalCars = order.stream().mapToInt(Integer::intValue).toArray();
+            if (result.equals(this)) {
+                result = this;
+            } else {
+                result.canonicalCars = new int[cars.size()];
+                Arrays.setAll(result.canonicalCars, i -> i);
+                result.canonical = result;
+            }
+            this.canonical = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return index in this puzzle of the car at that index in the canonical puzzle
+     */
+    int getCanonicalCar(int canonicalCar) {
+        this.canonical();
+        return this.canonicalCars[canonicalCar];
+    }
+
+    /**
+     * @return first row or column the car starts at in its lane
+     */
+    int getStartPosition(int car) {
+        return (int) ((this.startWords[this.words[car]] >>> this.shifts[car]) & this.masks[car]);
+    }
+
+    /**
+     * Packs car positions into the bit layout of this puzzle
+     *
+     * @param positions first row or column of each car
+     * @return the packed words
+     */
+    long[] pack(int[] positions) {
+        long[] packed = new long[this.numWords];
+        for (int car = 0; car < positions.length; car++) {
+            packed[this.words[car]] |= (long) positions[car] << this.shifts[car];
+        }
+        return packed;
+    }
+
+    /**
+     * @return random key of the car sitting at that position
+     */
+    long zobristKey(int car, int position) {
+        return this.zobristKeys[this.zobristOffsets[car] + position];
+    }
+
+    /**
+     * Works out the Zobrist hash of a configuration from scratch, the xor
+     * of the keys of every car at its position. Moving one car only swaps
+     * two keys, so configurations of boards too wide for one packed word
+     * carry the hash along and update their parent's in a couple of xors.
+     *
+     * @param positions first row or column of each car
+     * @return the configuration's hash
+     */
+    long zobrist(int[] positions) {
+        long hash = 0;
+        for (int car = 0; car < positions.length; car++) {
+            hash ^= this.zobristKey(car, positions[car]);
+        }
+        return hash;
+    }
+
+    /**
+     * @return Zobrist hash of the starting configuration
+     */
+    long getStartZobrist() {
+        return this.startZobrist;
+    }
+
+    /**
+     * Reads one car position out of a packed configuration
+     *
+     * @param packed   first packed word
+     * @param overflow the remaining packed words, null if the puzzle fits in one
+     * @param car      index of the car
+     * @return first row or column the car covers in its lane
+     */
+    int unpack(long packed, long[] overflow, int car) {
+        int word = this.words[car];
+        long bits = word == 0 ? packed : overflow[word - 1];
+        return (int) ((bits >>> this.shifts[car]) & this.masks[car]);
+    }
+
+    /**
+     * Writes one car position into a packed word
+     *
+     * @param bits     packed word that holds the car
+     * @param car      index of the car
+     * @param position new first row or column of the car
+     * @return the packed word with the car moved
+     */
+    long repack(long bits, int car, int position) {
+        int shift = this.shifts[car];
+        return (bits & ~(this.masks[car] << shift)) | ((long) position << shift);
+    }
+
+    /**
+     * @return which packed word holds the car position
+     */
+    int getWord(int car) {
+        return this.words[car];
+    }
+
+    /**
+     * @return number of longs needed to pack one configuration
+     */
+    int getNumWords() {
+        return this.numWords;
+    }
+
+    /**
+     * @return a fresh copy of the packed starting positions
+     */
+    long[] getStartWords() {
+        return this.startWords.clone();
+    }
+
+    /**
+     * Finds a car by its name
+     *
+     * @param name the car name
+     * @return index of the car, -1 if there is no such car
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < this.names.length; i++) {
+            if (this.names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the car drawn with a symbol on the board
+     *
+     * @param symbol the char on the board
+     * @return index of the car, -1 if no car is drawn with it
+     */
+    public int indexOfSymbol(char symbol) {
+        return symbol < this.symbolIndex.length ? this.symbolIndex[symbol] : -1;
+    }
+
+    /**
+     * @return the highest first row or column the car can take in its lane
+     */
+    public int getMaxPosition(int car) {
+        return (this.sideways[car] ? this.numCols : this.numRows) - this.lengths[car];
+    }
+
+    /**
+     * @return int number of cars
+     */
+    public int getNumCars() {
+        return this.names.length;
+    }
+
+    /**
+     * @return the car name
+     */
+    public String getName(int car) {
+        return this.names[car];
+    }
+
+    /**
+     * @return char the car is drawn with on the board
+     */
+    public char getSymbol(int car) {
+        return this.symbols[car];
+    }
+
+    /**
+     * @return true if the car moves sideways, false if it moves up and down
+     */
+    public boolean movesSideways(int car) {
+        return this.sideways[car];
+    }
+
+    /**
+     * @return the fixed row of a sideways car, the fixed column otherwise
+     */
+    public int getLane(int car) {
+        return this.lanes[car];
+    }
+
+    /**
+     * @return number of cells the car covers
+     */
+    public int getLength(int car) {
+        return this.lengths[car];
+    }
+
+    /**
+     * @return index of the X car
+     */
+    public int getGoalIndex() {
+        return this.goalIndex;
+    }
+
+    /**
+     * @return int number of rows
+     */
+    public int getNumRows() {
+        return this.numRows;
+    }
+
+    /**
+     * @return int number of columns
+     */
+    public int getNumCols() {
+        return this.numCols;
+    }
+
+    /**
+     * Board size and cars of a puzzle before they are laid out
+     *
+     * @param numRows game board number of rows
+     * @param numCols game board number of columns
+     * @param cars    the cars in name order
+     */
+    private record Board(int numRows, int numCols, Collection<Car> cars) {
+    }
+
+}
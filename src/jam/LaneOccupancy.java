@@ -0,0 +1,175 @@
+package jam;
+
+/**
+ * Which cells of a board are covered, kept as a bitmask for every row
+ * and every column along with the car on each cell, and updated as
+ * single cars move instead of being worked out from the whole board.
+ * How far a car can slide comes out of its lane's mask with a bit scan
+ * each way, so checking a move never walks the lane cell by cell.
+ * Lanes longer than a long take more than one word.
+ *
+ * @author Andrew Photinakis
+ */
+class LaneOccupancy {
+
+    /**
+     * the puzzle whose board this is
+     */
+    private final JamPuzzle puzzle;
+    /**
+     * words in the mask of each row
+     */
+    private final int rowWords;
+    /**
+     * words in the mask of each column
+     */
+    private final int colWords;
+    /**
+     * the mask of every row one after another, bit c set if column c is covered
+     */
+    private final long[] rows;
+    /**
+     * the mask of every column one after another, bit r set if row r is covered
+     */
+    private final long[] cols;
+    /**
+     * index of the car on each cell numbered row by row, -1 for an empty cell
+     */
+    private final int[] cells;
+
+    /**
+     * Marks the cells covered in a configuration
+     *
+     * @param config the configuration
+     */
+    LaneOccupancy(JamConfiguration config) {
+        this.puzzle = config.getPuzzle();
+        int numRows = this.puzzle.getNumRows();
+        int numCols = this.puzzle.getNumCols();
+        this.rowWords = (numCols + Long.SIZE - 1) / Long.SIZE;
+        this.colWords = (numRows + Long.SIZE - 1) / Long.SIZE;
+        this.rows = new long[numRows * this.rowWords];
+        this.cols = new long[numCols * this.colWords];
+        this.cells = config.getCellCars();
+        for (int cell = 0; cell < this.cells.length; cell++) {
+            if (this.cells[cell] >= 0) {
+                this.flip(cell / numCols, cell % numCols);
+            }
+        }
+    }
+
+    /**
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return index of the car on the cell, -1 if it is empty
+     */
+    int carAt(int row, int col) {
+        return this.cells[row * this.puzzle.getNumCols() + col];
+    }
+
+    /**
+     * @param car      index of the car
+     * @param position first row or column the car covers now
+     * @return lowest first row or column the car can slide back to
+     */
+    int lowestPosition(int car, int position) {
+        int lane = this.puzzle.getLane(car);
+        long[] masks = this.puzzle.movesSideways(car) ? this.rows : this.cols;
+        int words = this.puzzle.movesSideways(car) ? this.rowWords : this.colWords;
+        return highestBelow(masks, lane * words, position) + 1;
+    }
+
+    /**
+     * @param car      index of the car
+     * @param position first row or column the car covers now
+     * @return highest first row or column the car can slide forward to
+     */
+    int highestPosition(int car, int position) {
+        int lane = this.puzzle.getLane(car);
+        long[] masks = this.puzzle.movesSideways(car) ? this.rows : this.cols;
+        int words = this.puzzle.movesSideways(car) ? this.rowWords : this.colWords;
+        int blocker = lowestFrom(masks, lane * words, words, position + this.puzzle.getLength(car));
+        return blocker < 0 ? this.puzzle.getMaxPosition(car) : blocker - this.puzzle.getLength(car);
+    }
+
+    /**
+     * Moves a car along its lane, clearing the cells it leaves and
+     * marking the ones it covers
+     *
+     * @param car  index of the car
+     * @param from first row or column the car covered
+     * @param to   first row or column the car covers after the move
+     */
+    void move(int car, int from, int to) {
+        int lane = this.puzzle.getLane(car);
+        int numCols = this.puzzle.getNumCols();
+        boolean sideways = this.puzzle.movesSideways(car);
+        for (int p = from; p < from + this.puzzle.getLength(car); p++) {
+            int row = sideways ? lane : p;
+            int col = sideways ? p : lane;
+            this.flip(row, col);
+            this.cells[row * numCols + col] = -1;
+        }
+        for (int p = to; p < to + this.puzzle.getLength(car); p++) {
+            int row = sideways ? lane : p;
+            int col = sideways ? p : lane;
+            this.flip(row, col);
+            this.cells[row * numCols + col] = car;
+        }
+    }
+
+    /**
+     * Flips a cell's bit in the mask of its row and of its column
+     *
+     * @param row row of the cell
+     * @param col column of the cell
+     */
+    private void flip(int row, int col) {
+        this.rows[row * this.rowWords + (col >>> 6)] ^= 1L << col;
+        this.cols[col * this.colWords + (row >>> 6)] ^= 1L << row;
+    }
+
+    /**
+     * @param masks the masks of every lane
+     * @param base  first word of the lane's mask
+     * @param index bit to look below
+     * @return highest bit set below the index in the lane, -1 if there is none
+     */
+    private static int highestBelow(long[] masks, int base, int index) {
+        if (index == 0) {
+            return -1;
+        }
+        int word = (index - 1) >>> 6;
+        long bits = masks[base + word] & (-1L >>> (63 - ((index - 1) & 63)));
+        while (bits == 0) {
+            if (--word < 0) {
+                return -1;
+            }
+            bits = masks[base + word];
+        }
+        return word * Long.SIZE + 63 - Long.numberOfLeadingZeros(bits);
+    }
+
+    /**
+     * @param masks the masks of every lane
+     * @param base  first word of the lane's mask
+     * @param words words in the lane's mask
+     * @param index first bit to look at
+     * @return lowest bit set at or above the index in the lane, -1 if there is none
+     */
+    private static int lowestFrom(long[] masks, int base, int words, int index) {
+        int word = index >>> 6;
+        if (word >= words) {
+            return -1;
+        }
+        long bits = masks[base + word] & (-1L << index);
+        while (bits == 0) {
+            if (++word == words) {
+                return -1;
+            }
+            bits = masks[base + word];
+        }
+        return word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+    }
+
+}
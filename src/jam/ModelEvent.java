@@ -0,0 +1,48 @@
+package jam;
+
+/**
+ * Something that happened to a JamModel, handed to its observers. Each
+ * event carries the game state and the configuration as they were when
+ * it was made, so an observer that gets it later, on another thread,
+ * still sees the board the message is about.
+ *
+ * @param type    what kind of change the event is
+ * @param state   the model's game state when the event was made
+ * @param message the message for the player
+ * @param config  the configuration when the event was made
+ * @author Andrew Photinakis
+ */
+public record ModelEvent(Type type, JamModel.GameState state, String message, JamConfiguration config) {
+
+    /**
+     * Kinds of events, in order of how much of the view they change
+     */
+    public enum Type {
+        /**
+         * only the message changed, the board is as it was
+         */
+        MESSAGE,
+        /**
+         * the board changed, by a move, a hint or a reset
+         */
+        BOARD,
+        /**
+         * a puzzle was loaded, possibly a different one
+         */
+        LOADED
+    }
+
+    /**
+     * An event that hasn't been delivered yet can be dropped once a newer
+     * one supersedes it: the newer event's message replaces the older one,
+     * and its board replaces the older board unless the older event loaded
+     * a puzzle the newer one didn't.
+     *
+     * @param older an event made before this one
+     * @return true if delivering this event makes delivering the older one pointless
+     */
+    public boolean supersedes(ModelEvent older) {
+        return this.type.compareTo(older.type) >= 0;
+    }
+
+}
@@ -0,0 +1,314 @@
+package jam;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file of many puzzles in a compact binary form, written once from the
+ * text game files and then memory mapped, so a library of hundreds of
+ * thousands of boards opens straight away and any puzzle in it can be
+ * read by its index without going through a reader per file.
+ * <p>
+ * The file starts with a header (magic, version, number of puzzles) and
+ * the offset of every puzzle as a long. Each puzzle is its name, the
+ * board size, the number of cars and then every car, in name order, as
+ * its name and its starting and ending row and column. Names are UTF-8
+ * with their length in front and every other number is a single byte.
+ *
+ * @author Andrew Photinakis
+ */
+public class PuzzlePack {
+
+    /**
+     * first int of every puzzle pack file, "JAMP"
+     */
+    public static final int MAGIC = 0x4A414D50;
+    /**
+     * version of the file layout
+     */
+    public static final int VERSION = 1;
+    /**
+     * file name ending puzzle packs are given
+     */
+    public static final String EXTENSION = ".jpk";
+    /**
+     * bytes taken by magic, version and number of puzzles
+     */
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    /**
+     * largest board size, car count or coordinate a single byte holds
+     */
+    private static final int MAX_BYTE = 0xFF;
+
+    /**
+     * A puzzle to write, under the name it is listed by
+     *
+     * @param name   name of the puzzle, usually the file it was read from
+     * @param puzzle the puzzle
+     */
+    public record Entry(String name, JamPuzzle puzzle) {
+    }
+
+    /**
+     * Hands out the puzzles to write one at a time, so a pack can be
+     * written without holding every puzzle at once
+     */
+    private interface EntrySource {
+        /**
+         * @param index index of the puzzle in the pack
+         * @return the puzzle to write there
+         * @throws IOException if the puzzle can't be read
+         */
+        Entry get(int index) throws IOException;
+    }
+
+    /**
+     * the pack file
+     */
+    private final Path file;
+    /**
+     * the whole mapped file
+     */
+    private final ByteBuffer buffer;
+    /**
+     * number of puzzles in the pack
+     */
+    private final int size;
+
+    /**
+     * @param file   the pack file
+     * @param buffer the whole mapped file
+     * @param size   number of puzzles in the pack
+     */
+    private PuzzlePack(Path file, ByteBuffer buffer, int size) {
+        this.file = file;
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * Opens a puzzle pack, mapping the whole file
+     *
+     * @param file the pack file
+     * @return the opened pack
+     * @throws IOException if the file can't be read or isn't a puzzle pack
+     */
+    public static PuzzlePack open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Puzzle pack is too big to map: " + file);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+                throw new IOException("Not a version " + VERSION + " puzzle pack: " + file);
+            }
+            int size = buffer.getInt(2 * Integer.BYTES);
+            if (size < 0 || HEADER_BYTES + (long) size * Long.BYTES > buffer.limit()) {
+                throw new IOException("Puzzle pack is cut short: " + file);
+            }
+            return new PuzzlePack(file, buffer, size);
+        }
+    }
+
+    /**
+     * Writes a puzzle pack holding the puzzles
+     *
+     * @param file    the pack file, replaced if it exists
+     * @param entries the puzzles to write with their names
+     * @throws IOException if the file can't be written or a puzzle is too big for the format
+     */
+    public static void write(Path file, List<Entry> entries) throws IOException {
+        write(file, entries.size(), entries::get);
+    }
+
+    /**
+     * Converts text game files into a puzzle pack. Each file is read and
+     * written out in turn, and listed by its file name.
+     *
+     * @param file  the pack file, replaced if it exists
+     * @param games the text game files
+     * @throws IOException if a game file can't be read or the pack can't be written
+     */
+    public static void convert(Path file, List<Path> games) throws IOException {
+        write(file, games.size(), index -> {
+            Path game = games.get(index);
+            return new Entry(game.getFileName().toString(), new JamPuzzle(game.toString()));
+        });
+    }
+
+    /**
+     * Writes the header and offsets, then streams each puzzle after them
+     *
+     * @param file    the pack file, replaced if it exists
+     * @param count   number of puzzles
+     * @param entries hands out each puzzle
+     * @throws IOException if the file can't be written or a puzzle is too big for the format
+     */
+    private static void write(Path file, int count, EntrySource entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + count * Long.BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count);
+
+            long offset = header.capacity();
+            ByteBuffer record = ByteBuffer.allocate(1024);
+            for (int i = 0; i < count; i++) {
+                Entry entry = entries.get(i);
+                record = encode(entry, record);
+                header.putLong(offset);
+                offset = writeFully(channel, record.flip(), offset);
+            }
+            writeFully(channel, header.flip(), 0);
+        }
+    }
+
+    /**
+     * Writes all of a buffer at a position, since a single write may stop short
+     *
+     * @param channel  the file
+     * @param buffer   the bytes to write
+     * @param position where in the file to write them
+     * @return the position just past them
+     * @throws IOException if the file can't be written
+     */
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+    /**
+     * Encodes one puzzle, growing the buffer if it doesn't fit
+     *
+     * @param entry  the puzzle and its name
+     * @param record buffer to encode into, cleared first
+     * @return the buffer holding the encoded puzzle
+     * @throws IOException if the puzzle is too big for the format
+     */
+    private static ByteBuffer encode(Entry entry, ByteBuffer record) throws IOException {
+        JamPuzzle puzzle = entry.puzzle();
+        byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+        if (name.length > Short.MAX_VALUE || puzzle.getNumRows() > MAX_BYTE || puzzle.getNumCols() > MAX_BYTE
+                || puzzle.getNumCars() > MAX_BYTE) {
+            throw new IOException("Puzzle " + entry.name() + " is too big for a puzzle pack");
+        }
+        List<byte[]> carNames = new ArrayList<>();
+        int bytes = Short.BYTES + name.length + 3;
+        for (int car = 0; car < puzzle.getNumCars(); car++) {
+            byte[] carName = puzzle.getName(car).getBytes(StandardCharsets.UTF_8);
+            if (carName.length > MAX_BYTE) {
+                throw new IOException("Car " + puzzle.getName(car) + " of " + entry.name() + " has too long a name");
+            }
+            carNames.add(carName);
+            bytes += 1 + carName.length + 4;
+        }
+        if (record.capacity() < bytes) {
+            record = ByteBuffer.allocate(Math.max(bytes, 2 * record.capacity()));
+        }
+
+        record.clear();
+        record.putShort((short) name.length).put(name);
+        record.put((byte) puzzle.getNumRows()).put((byte) puzzle.getNumCols()).put((byte) puzzle.getNumCars());
+        for (int car = 0; car < puzzle.getNumCars(); car++) {
+            int lane = puzzle.getLane(car);
+            int first = puzzle.getStartPosition(car);
+            int last = first + puzzle.getLength(car) - 1;
+            record.put((byte) carNames.get(car).length).put(carNames.get(car));
+            if (puzzle.movesSideways(car)) {
+                record.put((byte) lane).put((byte) first).put((byte) lane).put((byte) last);
+            } else {
+                record.put((byte) first).put((byte) lane).put((byte) last).put((byte) lane);
+            }
+        }
+        return record;
+    }
+
+    /**
+     * @return where the puzzle at that index starts in the file
+     */
+    private int offsetOf(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("No puzzle " + index + " in a pack of " + this.size);
+        }
+        return (int) this.buffer.getLong(HEADER_BYTES + index * Long.BYTES);
+    }
+
+    /**
+     * Reads a UTF-8 name out of the mapped file
+     *
+     * @param at     where the name's bytes start
+     * @param length number of bytes in the name
+     * @return the name
+     */
+    private String readName(int at, int length) {
+        byte[] bytes = new byte[length];
+        this.buffer.get(at, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param index index of the puzzle in the pack
+     * @return the name the puzzle is listed by
+     */
+    public String getName(int index) {
+        int at = this.offsetOf(index);
+        return this.readName(at + Short.BYTES, this.buffer.getShort(at));
+    }
+
+    /**
+     * Reads the puzzle at an index straight out of the mapped file
+     *
+     * @param index index of the puzzle in the pack
+     * @return the puzzle
+     * @throws IOException if the puzzle in the file isn't a valid one
+     */
+    public JamPuzzle get(int index) throws IOException {
+        int at = this.offsetOf(index);
+        at += Short.BYTES + this.buffer.getShort(at);
+        int numRows = Byte.toUnsignedInt(this.buffer.get(at));
+        int numCols = Byte.toUnsignedInt(this.buffer.get(at + 1));
+        int numCars = Byte.toUnsignedInt(this.buffer.get(at + 2));
+        at += 3;
+
+        List<Car> cars = new ArrayList<>(numCars);
+        for (int car = 0; car < numCars; car++) {
+            int length = Byte.toUnsignedInt(this.buffer.get(at));
+            String name = this.readName(at + 1, length);
+            at += 1 + length;
+            cars.add(new Car(name, Byte.toUnsignedInt(this.buffer.get(at)), Byte.toUnsignedInt(this.buffer.get(at + 1)),
+                    Byte.toUnsignedInt(this.buffer.get(at + 2)), Byte.toUnsignedInt(this.buffer.get(at + 3))));
+            at += 4;
+        }
+        return JamPuzzle.of(numRows, numCols, cars, this.file + " #" + index);
+    }
+
+    /**
+     * @return the pack file
+     */
+    public Path getFile() {
+        return this.file;
+    }
+
+    /**
+     * @return number of puzzles in the pack
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param file a file that might be a puzzle pack
+     * @return true if the file is named like a puzzle pack
+     */
+    public static boolean isPack(Path file) {
+        return file.toString().endsWith(EXTENSION);
+    }
+
+}
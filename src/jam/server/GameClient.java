@@ -0,0 +1,70 @@
+package jam.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Talks to a GameServer over a localhost socket, one command at a time.
+ *
+ * @author Andrew Photinakis
+ */
+public class GameClient implements Closeable {
+
+    /**
+     * connection to the server
+     */
+    private final Socket socket;
+    /**
+     * replies from the server
+     */
+    private final BufferedReader in;
+    /**
+     * commands to the server
+     */
+    private final PrintWriter out;
+
+    /**
+     * Connects to a server on this machine
+     *
+     * @param port port the server is listening on
+     * @throws IOException if the server can't be reached
+     */
+    public GameClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.in = new BufferedReader(new InputStreamReader(this.socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new PrintWriter(this.socket.getOutputStream(), true, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends a command and waits for its reply
+     *
+     * @param command one line of the protocol, see GameServer
+     * @return the reply
+     * @throws IOException if the server hangs up
+     */
+    public String send(String command) throws IOException {
+        this.out.println(command);
+        String reply = this.in.readLine();
+        if (reply == null) {
+            throw new IOException("Server closed the connection");
+        }
+        return reply;
+    }
+
+    /**
+     * Hangs up
+     *
+     * @throws IOException if the connection can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.socket.close();
+    }
+
+}
@@ -0,0 +1,385 @@
+package jam.server;
+
+import jam.JamModel;
+import jam.JamPuzzle;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Hosts many Jam games at once with no GUI. Each game is a GameSession,
+ * and the commands of every session run on one shared pool of worker
+ * threads. Sessions playing the same puzzle share one JamPuzzle, and so
+ * also share its distance table when hints come from distance tables,
+ * which leaves each session holding little more than its own position.
+ * Puzzle files are only read from under the server's puzzle root, and
+ * only the MAX_PUZZLES used last are kept.
+ * <p>
+ * Commands can be called directly or sent as lines of text, either to
+ * handle or over a localhost socket from serve:
+ * <pre>
+ * OPEN puzzle-file       -> OK session-id, the file relative to the puzzle root
+ * id SELECT row col      -> OK messages
+ * id HINT | RESET        -> OK messages
+ * id LOAD puzzle-file    -> OK messages
+ * id BOARD               -> OK rows separated by /
+ * id STATUS              -> OK solved | OK moves n
+ * id CLOSE               -> OK
+ * STATS                  -> OK sessions n puzzles n
+ * </pre>
+ * Anything that goes wrong is answered with ERR and the reason.
+ *
+ * @author Andrew Photinakis
+ */
+public class GameServer {
+
+    /**
+     * most puzzles kept at once, by file and by distinct puzzle, before dropping the least recently used
+     */
+    public static final int MAX_PUZZLES = 1024;
+
+    /**
+     * the open sessions by id
+     */
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    /**
+     * puzzles already read, by real file path. Locked on itself, along
+     * with puzzles; files are read outside the lock.
+     */
+    private final Map<Path, JamPuzzle> puzzlesByFile = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, JamPuzzle> eldest) {
+            return this.size() > MAX_PUZZLES;
+        }
+    };
+    /**
+     * one instance of every distinct puzzle, so equal puzzles read from different files are shared
+     */
+    private final Map<JamPuzzle, JamPuzzle> puzzles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<JamPuzzle, JamPuzzle> eldest) {
+            return this.size() > MAX_PUZZLES;
+        }
+    };
+    /**
+     * the directory puzzle files are read from, as a real path
+     */
+    private final Path puzzleRoot;
+    /**
+     * runs the commands of every session
+     */
+    private final ExecutorService workers;
+    /**
+     * id of the next session opened
+     */
+    private final AtomicLong nextId = new AtomicLong(1);
+    /**
+     * how sessions work out hints
+     */
+    private final JamModel.HintMode hintMode;
+    /**
+     * the socket serve is listening on, null if it isn't
+     */
+    private volatile ServerSocket listener;
+
+    /**
+     * Makes a server reading puzzle files from under the working directory
+     *
+     * @param threads  number of worker threads running commands
+     * @param hintMode how sessions work out hints
+     * @throws IOException if the working directory can't be resolved
+     */
+    public GameServer(int threads, JamModel.HintMode hintMode) throws IOException {
+        this(threads, hintMode, Path.of(""));
+    }
+
+    /**
+     * @param threads    number of worker threads running commands
+     * @param hintMode   how sessions work out hints
+     * @param puzzleRoot the directory puzzle files are read from, files outside it are refused
+     * @throws IOException if the puzzle root doesn't exist
+     */
+    public GameServer(int threads, JamModel.HintMode hintMode, Path puzzleRoot) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, was " + threads);
+        }
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "jam-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.hintMode = hintMode;
+        this.puzzleRoot = puzzleRoot.toRealPath();
+    }
+
+    /**
+     * Opens a new session playing a puzzle
+     *
+     * @param puzzleFile file of the puzzle
+     * @return the new session
+     * @throws IOException if the puzzle can't be read
+     */
+    public GameSession open(String puzzleFile) throws IOException {
+        JamPuzzle puzzle = this.puzzle(puzzleFile);
+        long id = this.nextId.getAndIncrement();
+        GameSession session = new GameSession(id, puzzle, puzzleFile, this.hintMode, this.workers);
+        this.sessions.put(id, session);
+        return session;
+    }
+
+    /**
+     * @param id number of the session
+     * @return the session, null if there is no such open session
+     */
+    public GameSession get(long id) {
+        return this.sessions.get(id);
+    }
+
+    /**
+     * Closes a session
+     *
+     * @param id number of the session
+     * @return true if the session was open
+     */
+    public boolean close(long id) {
+        GameSession session = this.sessions.remove(id);
+        if (session != null) {
+            session.close();
+        }
+        return session != null;
+    }
+
+    /**
+     * Gets a puzzle, reading its file only the first time any session asks
+     * for it, unless it has been dropped since
+     *
+     * @param puzzleFile file of the puzzle, relative to the puzzle root
+     * @return the puzzle, shared by every session playing it
+     * @throws IOException if the puzzle can't be read
+     * @throws IllegalArgumentException if the file isn't under the puzzle root
+     */
+    public JamPuzzle puzzle(String puzzleFile) throws IOException {
+        Path path = this.puzzleRoot.resolve(puzzleFile).normalize();
+        if (!path.startsWith(this.puzzleRoot)) {
+            throw new IllegalArgumentException("Not under the puzzle root: " + puzzleFile);
+        }
+        /** a link under the root may still lead out of it */
+        try {
+            path = path.toRealPath();
+        } catch (NoSuchFileException e) {
+            throw new NoSuchFileException(puzzleFile, null, "no such puzzle file");
+        }
+        if (!path.startsWith(this.puzzleRoot)) {
+            throw new IllegalArgumentException("Not under the puzzle root: " + puzzleFile);
+        }
+        synchronized (this.puzzlesByFile) {
+            JamPuzzle known = this.puzzlesByFile.get(path);
+            if (known != null) {
+                return known;
+            }
+        }
+        JamPuzzle puzzle = new JamPuzzle(path.toString());
+        synchronized (this.puzzlesByFile) {
+            JamPuzzle shared = this.puzzles.putIfAbsent(puzzle, puzzle);
+            if (shared != null) {
+                puzzle = shared;
+            }
+            this.puzzlesByFile.put(path, puzzle);
+            return puzzle;
+        }
+    }
+
+    /**
+     * Runs one line of the text protocol
+     *
+     * @param line the command
+     * @return the reply, OK or ERR followed by the details
+     */
+    public CompletableFuture<String> handle(String line) {
+        String[] words = line.strip().split("\\s+");
+        CompletableFuture<String> reply;
+        try {
+            if (words[0].equalsIgnoreCase("OPEN") && words.length == 2) {
+                reply = CompletableFuture.completedFuture(String.valueOf(this.open(words[1]).getId()));
+            } else if (words[0].equalsIgnoreCase("STATS") && words.length == 1) {
+                reply = CompletableFuture.completedFuture("sessions " + this.getSessionCount()
+                        + " puzzles " + this.getPuzzleCount());
+            } else if (words.length >= 2) {
+                reply = this.handle(Long.parseLong(words[0]), words);
+            } else {
+                throw new IllegalArgumentException("Unknown command: " + line.strip());
+            }
+        } catch (IOException | RuntimeException e) {
+            reply = CompletableFuture.failedFuture(e);
+        }
+        return reply.handle((text, error) -> {
+            if (error == null) {
+                return text.isEmpty() ? "OK" : "OK " + text;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            return "ERR " + cause.getMessage();
+        });
+    }
+
+    /**
+     * Runs a command for one session
+     *
+     * @param id    number of the session
+     * @param words the command split into words, the id first
+     * @return the messages the command made
+     * @throws IOException if a puzzle to load can't be read
+     */
+    private CompletableFuture<String> handle(long id, String[] words) throws IOException {
+        GameSession session = this.sessions.get(id);
+        if (session == null) {
+            throw new IllegalArgumentException("No session " + id);
+        }
+        String command = words[1].toUpperCase();
+        if (command.equals("SELECT") && words.length == 4) {
+            return session.select(Integer.parseInt(words[2]), Integer.parseInt(words[3]));
+        } else if (command.equals("LOAD") && words.length == 3) {
+            return session.load(this.puzzle(words[2]), words[2]);
+        } else if (command.equals("CLOSE") && words.length == 2) {
+            this.close(id);
+            return CompletableFuture.completedFuture("");
+        } else if (words.length == 2) {
+            switch (command) {
+                case "HINT":
+                    return session.hint();
+                case "RESET":
+                    return session.reset();
+                case "BOARD":
+                    return session.board();
+                case "STATUS":
+                    return session.status();
+                default:
+                    break;
+            }
+        }
+        throw new IllegalArgumentException("Unknown command: " + String.join(" ", words));
+    }
+
+    /**
+     * Serves the text protocol on a localhost port, one line per command
+     * and one line per reply, until the server is shut down. Each
+     * connection is read on its own thread.
+     *
+     * @param port the port, 0 for any free one
+     * @param ready told the port once the server is listening, may be null
+     * @throws IOException if the port can't be listened on
+     */
+    public void serve(int port, IntConsumer ready) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress())) {
+            this.listener = server;
+            if (ready != null) {
+                ready.accept(server.getLocalPort());
+            }
+            while (!this.workers.isShutdown()) {
+                Socket socket = server.accept();
+                Thread connection = new Thread(() -> this.converse(socket), "jam-connection");
+                connection.setDaemon(true);
+                connection.start();
+            }
+        } catch (SocketException e) {
+            if (!this.workers.isShutdown()) {
+                throw e;
+            }
+        } finally {
+            this.listener = null;
+        }
+    }
+
+    /**
+     * Answers the commands sent over one connection until it is closed
+     *
+     * @param socket the connection
+     */
+    private void converse(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isBlank()) {
+                    out.println(this.handle(line).join());
+                }
+            }
+        } catch (IOException e) {
+            /** the client went away */
+        }
+    }
+
+    /**
+     * Stops listening and stops the worker threads, closing every session
+     */
+    public void shutdown() {
+        this.workers.shutdown();
+        ServerSocket server = this.listener;
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                /** it is closing anyway */
+            }
+        }
+        for (Long id : this.sessions.keySet()) {
+            this.close(id);
+        }
+    }
+
+    /**
+     * @return number of open sessions
+     */
+    public int getSessionCount() {
+        return this.sessions.size();
+    }
+
+    /**
+     * @return number of distinct puzzles kept
+     */
+    public int getPuzzleCount() {
+        synchronized (this.puzzlesByFile) {
+            return this.puzzles.size();
+        }
+    }
+
+    /**
+     * Runs a server on a localhost port
+     *
+     * @param args port, then optional number of worker threads, the number
+     *             of cores by default, then optional hint mode, DISTANCE_TABLE by default,
+     *             then optional puzzle root, the working directory by default
+     * @throws IOException if the port can't be listened on
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java jam.server.GameServer port [threads] [SEARCH|DISTANCE_TABLE] [puzzle-root]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        JamModel.HintMode hintMode = args.length > 2 ? JamModel.HintMode.valueOf(args[2].toUpperCase())
+                : JamModel.HintMode.DISTANCE_TABLE;
+        GameServer server = new GameServer(threads, hintMode, Path.of(args.length > 3 ? args[3] : ""));
+        server.serve(Integer.parseInt(args[0]), port -> System.out.println("Listening on localhost:" + port));
+    }
+
+}
@@ -0,0 +1,302 @@
+package jam.server;
+
+import commonJam.Observer;
+import jam.JamModel;
+import jam.JamPuzzle;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One game played on a GameServer. A session is a JamModel with no view:
+ * it watches its own model, collecting the messages each command makes
+ * into the command's reply. Commands for a session run one at a time in
+ * the order they were sent, on whichever of the server's worker threads
+ * is free, so a session never ties up a thread of its own while it waits.
+ * Hints are searched for in the background, and the session's next
+ * command waits for the hint without holding a worker.
+ *
+ * @author Andrew Photinakis
+ */
+public class GameSession implements Observer<JamModel, String> {
+
+    /**
+     * most commands one session runs before letting other sessions have the thread
+     */
+    private static final int BATCH = 16;
+
+    /**
+     * number the server knows the session by
+     */
+    private final long id;
+    /**
+     * the game being played
+     */
+    private final JamModel model;
+    /**
+     * the server's worker threads
+     */
+    private final Executor workers;
+    /**
+     * commands waiting to run
+     */
+    private final Queue<Step> commands = new ConcurrentLinkedQueue<>();
+    /**
+     * set while the session is queued on or running on a worker
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    /**
+     * messages made by the command running now, null between commands.
+     * A hint's are added on the hint thread, under the model's lock.
+     */
+    private StringBuilder messages;
+    /**
+     * set once the session is closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * A command run against the session's model
+     */
+    @FunctionalInterface
+    private interface Command {
+        /**
+         * @param model the session's model
+         * @throws IOException if the model can't notify
+         */
+        void run(JamModel model) throws IOException;
+    }
+
+    /**
+     * A command run against the session's model that may finish later
+     */
+    @FunctionalInterface
+    private interface AsyncCommand {
+        /**
+         * @param model the session's model
+         * @return finishes once the command is done, null if it already is
+         * @throws IOException if the model can't notify
+         */
+        CompletableFuture<?> run(JamModel model) throws IOException;
+    }
+
+    /**
+     * A queued command, ready to run
+     */
+    @FunctionalInterface
+    private interface Step {
+        /**
+         * @return finishes once the command's reply is complete
+         */
+        CompletableFuture<?> run();
+    }
+
+    /**
+     * Makes a session playing the puzzle
+     *
+     * @param id       number the server knows the session by
+     * @param puzzle   puzzle to play, shared with other sessions
+     * @param gameFile file the puzzle was read from
+     * @param hintMode how the session works out hints
+     * @param workers  the server's worker threads
+     */
+    GameSession(long id, JamPuzzle puzzle, String gameFile, JamModel.HintMode hintMode, Executor workers) {
+        this.id = id;
+        this.workers = workers;
+        this.model = new JamModel(puzzle, gameFile);
+        this.model.setHintMode(hintMode);
+        this.model.addObserver(this);
+    }
+
+    /**
+     * Nothing to set up without a view
+     */
+    @Override
+    public void init() {
+    }
+
+    /**
+     * Adds the model's message to the reply of the command running
+     *
+     * @param jamModel the session's model
+     * @param msg      the message the model made
+     */
+    @Override
+    public void update(JamModel jamModel, String msg) {
+        if (this.messages != null) {
+            if (this.messages.length() > 0) {
+                this.messages.append("; ");
+            }
+            this.messages.append(msg.strip());
+        }
+    }
+
+    /**
+     * Selects a cell, either picking a car or moving the car already picked
+     *
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return the messages the selection made
+     */
+    public CompletableFuture<String> select(int row, int col) {
+        return this.enqueue(model -> model.selection(row, col));
+    }
+
+    /**
+     * Moves one step along a shortest solution. The search runs in the
+     * background, held to the hint time limit, and is cancelled if the
+     * session is closed first.
+     *
+     * @return the messages the hint made, including why it failed if it did
+     */
+    public CompletableFuture<String> hint() {
+        return this.enqueueAsync(model -> model.hintAsync().handle((next, error) -> null));
+    }
+
+    /**
+     * Starts the puzzle over
+     *
+     * @return the messages the reset made
+     */
+    public CompletableFuture<String> reset() {
+        return this.enqueue(JamModel::reset);
+    }
+
+    /**
+     * Switches to another puzzle
+     *
+     * @param puzzle   puzzle to play, shared with other sessions
+     * @param gameFile file the puzzle was read from
+     * @return the messages the load made
+     */
+    public CompletableFuture<String> load(JamPuzzle puzzle, String gameFile) {
+        return this.enqueue(model -> model.load(puzzle, gameFile));
+    }
+
+    /**
+     * Gets the board, one row after another with a / between rows
+     *
+     * @return the board
+     */
+    public CompletableFuture<String> board() {
+        return this.enqueue(model -> {
+            StringBuilder board = new StringBuilder();
+            for (int row = 0; row < model.getThisConfigRows(); row++) {
+                if (row > 0) {
+                    board.append('/');
+                }
+                for (int col = 0; col < model.getThisConfigCols(); col++) {
+                    board.append(model.getConfig().getCharAtCord(row, col));
+                }
+            }
+            this.messages.append(board);
+        });
+    }
+
+    /**
+     * Gets whether the puzzle is solved, and how many moves are left if not
+     *
+     * @return "solved" or the number of moves left
+     */
+    public CompletableFuture<String> status() {
+        return this.enqueue(model -> this.messages.append(model.getConfig().isSolution() ? "solved"
+                : "moves " + model.getMovesToSolve()));
+    }
+
+    /**
+     * Closes the session. Commands sent afterwards fail and a hint still
+     * being searched for is cancelled.
+     */
+    void close() {
+        this.closed = true;
+        this.model.cancelHint();
+    }
+
+    /**
+     * Queues a command and makes sure a worker will run it
+     *
+     * @param command the command
+     * @return the messages the command made, once it has run
+     */
+    private CompletableFuture<String> enqueue(Command command) {
+        return this.enqueueAsync(model -> {
+            command.run(model);
+            return null;
+        });
+    }
+
+    /**
+     * Queues a command that may finish later and makes sure a worker will run it
+     *
+     * @param command the command
+     * @return the messages the command made, once it has finished
+     */
+    private CompletableFuture<String> enqueueAsync(AsyncCommand command) {
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        if (this.closed) {
+            reply.completeExceptionally(new IllegalStateException("Session " + this.id + " is closed"));
+            return reply;
+        }
+        this.commands.add(() -> {
+            this.messages = new StringBuilder();
+            CompletableFuture<?> done;
+            try {
+                done = command.run(this.model);
+            } catch (Exception e) {
+                done = CompletableFuture.failedFuture(e);
+            }
+            return (done == null ? CompletableFuture.completedFuture(null) : done).handle((result, error) -> {
+                if (error == null) {
+                    reply.complete(this.messages.toString());
+                } else {
+                    reply.completeExceptionally(error);
+                }
+                this.messages = null;
+                return null;
+            });
+        });
+        this.schedule();
+        return reply;
+    }
+
+    /**
+     * Hands the session to a worker unless one already has it
+     */
+    private void schedule() {
+        if (this.scheduled.compareAndSet(false, true)) {
+            this.workers.execute(this::drain);
+        }
+    }
+
+    /**
+     * Runs up to BATCH waiting commands, then hands the session back to
+     * the workers if more are waiting. A command that hasn't finished
+     * when it returns keeps the session until it does, and the session
+     * goes back to the workers then.
+     */
+    private void drain() {
+        Step command;
+        for (int i = 0; i < BATCH && (command = this.commands.poll()) != null; i++) {
+            CompletableFuture<?> done = command.run();
+            if (!done.isDone()) {
+                done.whenComplete((result, error) -> this.workers.execute(this::drain));
+                return;
+            }
+        }
+        this.scheduled.set(false);
+        if (!this.commands.isEmpty()) {
+            this.schedule();
+        }
+    }
+
+    /**
+     * @return number the server knows the session by
+     */
+    public long getId() {
+        return this.id;
+    }
+
+}
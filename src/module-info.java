@@ -2,6 +2,9 @@ module moduleInfo {
     requires transitive javafx.controls;
     requires java.desktop;
     requires java.logging;
+    requires java.management;
+    requires jdk.management;
     exports commonJam.solver;
     exports jam;
+    exports jam.server;
 }
\ No newline at end of file